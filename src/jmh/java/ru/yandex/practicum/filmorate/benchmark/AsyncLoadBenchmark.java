@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AsyncLoadBenchmark extends FilmorateState {
+
+    @Param({"true", "false"})
+    public boolean async;
+
+    @Param("8")
+    public int tomcatThreads;
+
+    private HttpClient client;
+    private String baseUrl;
+
+    @Override
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.SERVLET;
+    }
+
+    @Override
+    protected List<String> properties() {
+        return List.of("--server.port=0",
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--filmorate.async.enabled=" + async);
+    }
+
+    @Override
+    protected void init() {
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(24)
+    public int slowFilms() throws Exception {
+        return get("/films");
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public int fastGenres() throws Exception {
+        return get("/genres");
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public int user() throws Exception {
+        return get("/users/" + randomUserId());
+    }
+
+    private int get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchImportBenchmark extends FilmorateState {
+
+    @Param("1000")
+    public int importSize;
+
+    private FilmService filmService;
+
+    @Override
+    protected void init() {
+        filmService = bean(FilmService.class);
+    }
+
+    @Benchmark
+    public List<Long> singleCreates() {
+        List<Long> ids = new ArrayList<>(importSize);
+        for (Film film : films()) {
+            ids.add(filmService.create(film).getId());
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public List<Long> batchImport() {
+        return filmService.createAll(films());
+    }
+
+    private List<Film> films() {
+        List<Film> films = new ArrayList<>(importSize);
+        for (int i = 0; i < importSize; i++) {
+            films.add(newFilm(1 + i % 6, 1 + (i + 1) % 6));
+        }
+        return films;
+    }
+}
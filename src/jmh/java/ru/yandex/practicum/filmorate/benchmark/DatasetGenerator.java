@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class DatasetGenerator {
+
+    private static final String INSERT_USER = "INSERT INTO users (login, user_name, email, birthday) VALUES (?,?,?,?)";
+
+    private static final String INSERT_FILM = "INSERT INTO films (film_name, release_date, description, duration, rate) " +
+            "VALUES (?,?,?,?,?)";
+
+    private static final String INSERT_FILM_MPA = "INSERT INTO film_mpas (film_id, mpa_id) VALUES (?,?)";
+
+    private static final String INSERT_FILM_GENRE = "INSERT INTO film_genres (film_id, genre_id) VALUES (?,?)";
+
+    private static final String INSERT_LIKE = "INSERT INTO likes (film_id, user_id) VALUES (?,?)";
+
+    private static final String INSERT_FRIEND = "INSERT INTO friends (user_id, friend_id, approval) VALUES (?,?,false)";
+
+    private static final int BATCH_SIZE = 1000;
+
+    public static final List<String> WORDS = List.of(
+            "зима", "лето", "осень", "весна", "город", "море", "река", "лес", "дом", "путь", "ночь", "утро",
+            "звезда", "ветер", "огонь", "ёжик", "туман", "солнце", "война", "мир", "любовь", "тайна", "остров", "мост",
+            "север", "юг", "брат", "сестра", "отец", "мать", "друг", "враг",
+            "winter", "summer", "autumn", "spring", "city", "sea", "river", "forest", "house", "road", "night",
+            "morning", "star", "wind", "fire", "hedgehog", "fog", "sun", "war", "peace", "love", "secret", "island",
+            "bridge", "north", "south", "brother", "sister", "father", "mother", "friend", "enemy");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random = new Random(42);
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void generate(int users, int films, int likesPerUser, int friendsPerUser, boolean powerLawFriends) {
+        insertRows(INSERT_USER, users, i -> new Object[]{"user" + i, "User " + i, "user" + i + "@mail.ru",
+                LocalDate.of(1950 + i % 50, 1 + i % 12, 1 + i % 28)});
+        insertRows(INSERT_FILM, films, i -> new Object[]{filmName(i), LocalDate.of(1930 + i % 90, 1 + i % 12, 1),
+                "Film about " + word(i / 7) + " and " + word(i / 11), 60 + i % 120, i % 10});
+        insertRows(INSERT_FILM_MPA, films, i -> new Object[]{i + 1, 1 + i % 5});
+        insertRows(INSERT_FILM_GENRE, films, i -> new Object[]{i + 1, 1 + i % 6});
+        insertLinks(INSERT_LIKE, users, films, likesPerUser, true);
+        if (powerLawFriends) {
+            insertPowerLawFriends(users, friendsPerUser);
+        } else {
+            insertLinks(INSERT_FRIEND, users, users, friendsPerUser, false);
+        }
+    }
+
+    // Two words out of the vocabulary and a number shared by every thousandth film
+    private static String filmName(int i) {
+        String first = word(i);
+        return Character.toUpperCase(first.charAt(0)) + first.substring(1) + " " + word(i / WORDS.size()) + " " +
+                i % 1000;
+    }
+
+    private static String word(int i) {
+        return WORDS.get(i % WORDS.size());
+    }
+
+    private void insertRows(String sql, int count, RowValues rowValues) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            batch.add(rowValues.get(i));
+            if (batch.size() == BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void insertLinks(String sql, int users, int targets, int linksPerUser, boolean targetFirst) {
+        int links = Math.min(linksPerUser, targets - 1);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (long userId = 1; userId <= users; userId++) {
+            Set<Long> chosen = new LinkedHashSet<>();
+            while (chosen.size() < links) {
+                long targetId = 1 + random.nextInt(targets);
+                if (targetFirst || targetId != userId) {
+                    chosen.add(targetId);
+                }
+            }
+            for (long targetId : chosen) {
+                batch.add(targetFirst ? new Object[]{targetId, userId} : new Object[]{userId, targetId});
+            }
+            if (batch.size() >= BATCH_SIZE || userId == users) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Every friendship joins a user drawn with probability falling as 1/id to a uniformly drawn one, in both
+    // directions: users average friendsPerUser friends while the lowest ids gather a sizeable share of all links
+    private void insertPowerLawFriends(int users, int friendsPerUser) {
+        long pairs = (long) users * friendsPerUser / 2;
+        double logUsers = Math.log(users);
+        Set<Long> chosen = new HashSet<>();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        while (chosen.size() < pairs) {
+            long hubId = (long) Math.exp(random.nextDouble() * logUsers);
+            long userId = 1 + random.nextInt(users);
+            if (hubId == userId || !chosen.add(Math.min(hubId, userId) << 32 | Math.max(hubId, userId))) {
+                continue;
+            }
+            batch.add(new Object[]{hubId, userId});
+            batch.add(new Object[]{userId, hubId});
+            if (batch.size() >= BATCH_SIZE || chosen.size() == pairs) {
+                jdbcTemplate.batchUpdate(INSERT_FRIEND, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private interface RowValues {
+        Object[] get(int index);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedBenchmark extends FilmorateState {
+
+    private static final String GET_FEED =
+            "SELECT l.like_id, l.user_id, l.film_id, l.created_at FROM likes l " +
+                    "WHERE l.user_id IN (SELECT friend_id FROM friends WHERE user_id=?) " +
+                    "ORDER BY l.like_id DESC LIMIT 20";
+
+    private UserService userService;
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    protected void init() {
+        userService = bean(UserService.class);
+        jdbcTemplate = bean(JdbcTemplate.class);
+    }
+
+    @Benchmark
+    public List<FeedEvent> feed() {
+        return userService.getFeed(randomUserId(), Long.MAX_VALUE, 20);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> sqlFeed() {
+        return jdbcTemplate.queryForList(GET_FEED, randomUserId());
+    }
+}
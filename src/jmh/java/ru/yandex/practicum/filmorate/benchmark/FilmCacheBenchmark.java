@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmCacheBenchmark extends FilmorateState {
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private FilmService filmService;
+
+    @Override
+    protected List<String> properties() {
+        return List.of("--filmorate.cache.films.max-size=" + cacheSize);
+    }
+
+    @Override
+    protected void init() {
+        filmService = bean(FilmService.class);
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return filmService.getFilm(randomFilmId());
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmService.getTheMostPopularFilms(100);
+    }
+}
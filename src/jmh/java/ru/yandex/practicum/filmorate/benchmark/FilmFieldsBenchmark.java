@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Each call returns the JSON body, so latency includes serialization; payload sizes are printed at startup
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmFieldsBenchmark extends FilmorateState {
+
+    private static final Set<String> LIST_FIELDS = Set.of("id", "name", "rate", "likes");
+
+    @Param("100")
+    public int pageSize;
+
+    private FilmService filmService;
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected void init() {
+        filmService = bean(FilmService.class);
+        objectMapper = bean(ObjectMapper.class);
+        try {
+            System.out.printf("%nPayload bytes for %d films: page %d, page with fields %d, "
+                            + "popular %d, popular with fields %d%n", pageSize,
+                    objectMapper.writeValueAsBytes(filmService.getFilms(0, pageSize)).length,
+                    objectMapper.writeValueAsBytes(filmService.getFilms(0, pageSize, LIST_FIELDS)).length,
+                    objectMapper.writeValueAsBytes(filmService.getTheMostPopularFilms(pageSize)).length,
+                    objectMapper.writeValueAsBytes(
+                            filmService.getTheMostPopularFilms(pageSize, null, null, LIST_FIELDS)).length);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] page() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(filmService.getFilms(randomAfterId(), pageSize));
+    }
+
+    @Benchmark
+    public byte[] pageWithFields() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(filmService.getFilms(randomAfterId(), pageSize, LIST_FIELDS));
+    }
+
+    @Benchmark
+    public byte[] popular() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(filmService.getTheMostPopularFilms(pageSize));
+    }
+
+    @Benchmark
+    public byte[] popularWithFields() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(
+                filmService.getTheMostPopularFilms(pageSize, null, null, LIST_FIELDS));
+    }
+
+    private long randomAfterId() {
+        return Math.max(0, randomFilmId() - pageSize);
+    }
+}
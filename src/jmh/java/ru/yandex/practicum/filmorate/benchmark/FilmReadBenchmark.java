@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The film cache is off, so every call reads films from the database; run with -prof gc to see allocations
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmReadBenchmark extends FilmorateState {
+
+    private FilmStorage filmStorage;
+
+    @Override
+    protected List<String> properties() {
+        return List.of("--filmorate.cache.films.max-size=0");
+    }
+
+    @Override
+    protected void init() {
+        filmStorage = bean(FilmStorage.class);
+    }
+
+    @Benchmark
+    public List<Film> getFilms() {
+        return filmStorage.getFilms();
+    }
+
+    @Benchmark
+    public List<Film> getFilmsPage() {
+        return filmStorage.getFilms(Math.max(0, randomFilmId() - 1000), 1000);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilmsByGenre() {
+        return filmStorage.getTheMostPopularFilms(1000, 1L + randomFilmId() % 6, null);
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return filmStorage.getFilm(randomFilmId());
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmSearchBenchmark extends FilmorateState {
+
+    private FilmStorage filmStorage;
+    private FilmSearchIndex filmSearchIndex;
+
+    @Override
+    protected void init() {
+        filmStorage = bean(FilmStorage.class);
+        filmSearchIndex = bean(FilmSearchIndex.class);
+        filmSearchIndex.load();
+    }
+
+    @Benchmark
+    public List<Long> oneWord() {
+        return filmSearchIndex.search(randomWord(), 10);
+    }
+
+    @Benchmark
+    public List<Long> twoWords() {
+        return filmSearchIndex.search(randomWord() + " " + randomWord(), 10);
+    }
+
+    @Benchmark
+    public List<Long> wordAndNumber() {
+        return filmSearchIndex.search(randomWord() + " " + ThreadLocalRandom.current().nextInt(1000), 10);
+    }
+
+    @Benchmark
+    public List<Long> everyFilm() {
+        return filmSearchIndex.search("film", 10);
+    }
+
+    @Benchmark
+    public List<Film> searchFilms() {
+        return filmStorage.searchFilms(randomWord() + " " + randomWord(), 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public void load() {
+        filmSearchIndex.load();
+    }
+
+    private static String randomWord() {
+        return DatasetGenerator.WORDS.get(ThreadLocalRandom.current().nextInt(DatasetGenerator.WORDS.size()));
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmServiceBenchmark extends FilmorateState {
+
+    private FilmService filmService;
+
+    @Override
+    protected void init() {
+        filmService = bean(FilmService.class);
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return filmService.getFilm(randomFilmId());
+    }
+
+    @Benchmark
+    public List<Film> getTheMostPopularFilms() {
+        return filmService.getTheMostPopularFilms(10);
+    }
+
+    @Benchmark
+    public void addLike() {
+        filmService.addLike(randomFilmId(), randomUserId());
+    }
+
+    @Benchmark
+    public Film create() {
+        return filmService.create(newFilm(1, 2));
+    }
+
+    @Benchmark
+    public Film update() {
+        Film film = newFilm(1 + ThreadLocalRandom.current().nextInt(6), 1 + ThreadLocalRandom.current().nextInt(6));
+        film.setId(randomFilmId());
+        return filmService.update(film);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark extends FilmorateState {
+
+    private FilmStorage filmStorage;
+
+    @Override
+    protected void init() {
+        filmStorage = bean(FilmStorage.class);
+    }
+
+    @Benchmark
+    public List<Film> getFilms() {
+        return filmStorage.getFilms();
+    }
+
+    @Benchmark
+    public List<Film> getFilmsPage() {
+        return filmStorage.getFilms(randomFilmId(), 100);
+    }
+
+    @Benchmark
+    public List<Film> getTheMostPopularFilms() {
+        return filmStorage.getTheMostPopularFilms(10);
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return filmStorage.getFilm(randomFilmId());
+    }
+
+    @Benchmark
+    public void addLike() {
+        filmStorage.addLike(randomFilmId(), randomUserId());
+    }
+
+    @Benchmark
+    public Film create() {
+        return filmStorage.create(newFilm(1, 2));
+    }
+
+    @Benchmark
+    public Film update() {
+        Film film = newFilm(1 + ThreadLocalRandom.current().nextInt(6), 1 + ThreadLocalRandom.current().nextInt(6));
+        film.setId(randomFilmId());
+        return filmStorage.update(film);
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.ActivityFeed;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.LikesMatrix;
+import ru.yandex.practicum.filmorate.storage.UserCache;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+@State(Scope.Benchmark)
+public class FilmorateState {
+
+    @Param("1000")
+    public int users;
+
+    @Param("1000")
+    public int films;
+
+    @Param("20")
+    public int likesPerUser;
+
+    @Param("50")
+    public int friendsPerUser;
+
+    // uniform or powerLaw
+    @Param("uniform")
+    public String friendsGraph;
+
+    protected ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.main.banner-mode=off",
+                "--spring.jdbc.template.query-timeout=0",
+                "--logging.level.root=WARN"));
+        args.addAll(properties());
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(webApplicationType())
+                .run(args.toArray(String[]::new));
+        new DatasetGenerator(bean(JdbcTemplate.class)).generate(users, films, likesPerUser, friendsPerUser,
+                "powerLaw".equals(friendsGraph));
+        bean(FilmStorage.class).recountLikes();
+        bean(FriendshipGraph.class).load();
+        bean(LikesMatrix.class).load();
+        bean(ActivityFeed.class).load();
+        bean(UserCache.class).load();
+        init();
+    }
+
+    protected List<String> properties() {
+        return List.of();
+    }
+
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.NONE;
+    }
+
+    protected void init() {
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    protected <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    protected long randomUserId() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+
+    protected long randomFilmId() {
+        return 1 + ThreadLocalRandom.current().nextInt(films);
+    }
+
+    protected static Film newFilm(long... genreIds) {
+        Film film = Film.builder()
+                .name("Belle Maman")
+                .description("About combining an incompatible")
+                .releaseDate(LocalDate.of(1999, 7, 14))
+                .duration(102L)
+                .mpa(Mpa.builder().id(1 + ThreadLocalRandom.current().nextInt(5)).build())
+                .build();
+        Set<Genre> genres = new HashSet<>();
+        for (long genreId : genreIds) {
+            genres.add(Genre.builder().id(genreId).build());
+        }
+        film.setGenres(genres);
+        return film;
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexBenchmark extends FilmorateState {
+
+    private static final String DROP_COMPOSITE_INDEXES =
+            "ALTER TABLE likes DROP CONSTRAINT likes_film_user_uk; DROP INDEX likes_user_film_idx; " +
+                    "DROP INDEX friends_user_friend_idx; DROP INDEX friends_friend_user_idx";
+
+    private static final String COUNT_LIKE = "SELECT COUNT(*) FROM likes WHERE film_id=? AND user_id=?";
+    private static final String GET_LIKED_FILM_IDS = "SELECT film_id FROM likes WHERE user_id=?";
+    private static final String COUNT_FRIEND = "SELECT COUNT(*) FROM friends WHERE user_id=? AND friend_id=?";
+    private static final String GET_FOLLOWER_IDS = "SELECT user_id FROM friends WHERE friend_id=?";
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private JdbcTemplate jdbcTemplate;
+    private FilmStorage filmStorage;
+
+    @Override
+    protected void init() {
+        jdbcTemplate = bean(JdbcTemplate.class);
+        filmStorage = bean(FilmStorage.class);
+        if (!indexed) {
+            jdbcTemplate.execute(DROP_COMPOSITE_INDEXES);
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Benchmark
+    public Integer findLike() {
+        return jdbcTemplate.queryForObject(COUNT_LIKE, Integer.class, randomFilmId(), randomUserId());
+    }
+
+    @Benchmark
+    public List<Long> getLikedFilmIds() {
+        return jdbcTemplate.queryForList(GET_LIKED_FILM_IDS, Long.class, randomUserId());
+    }
+
+    @Benchmark
+    public Integer findFriend() {
+        return jdbcTemplate.queryForObject(COUNT_FRIEND, Integer.class, randomUserId(), randomUserId());
+    }
+
+    @Benchmark
+    public List<Long> getFollowerIds() {
+        return jdbcTemplate.queryForList(GET_FOLLOWER_IDS, Long.class, randomUserId());
+    }
+
+    @Benchmark
+    public void addAndDeleteLike() {
+        long filmId = randomFilmId();
+        long userId = randomUserId();
+        filmStorage.addLike(filmId, userId);
+        filmStorage.deleteLike(filmId, userId);
+    }
+}
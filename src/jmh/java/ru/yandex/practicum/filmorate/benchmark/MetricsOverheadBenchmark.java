@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark extends FilmorateState {
+
+    @Param({"true", "false"})
+    public boolean metrics;
+
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    private GenreStorage genreStorage;
+
+    @Override
+    protected List<String> properties() {
+        return List.of("--filmorate.metrics.enabled=" + metrics);
+    }
+
+    @Override
+    protected void init() {
+        filmStorage = bean(FilmStorage.class);
+        userStorage = bean(UserStorage.class);
+        genreStorage = bean(GenreStorage.class);
+    }
+
+    @Benchmark
+    public Genre getGenre() {
+        return genreStorage.getGenre(1 + ThreadLocalRandom.current().nextInt(6));
+    }
+
+    @Benchmark
+    public User getUser() {
+        return userStorage.getUser(randomUserId());
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return filmStorage.getFilm(randomFilmId());
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class PoolSizeBenchmark extends FilmorateState {
+
+    @Param({"1", "2", "4", "10", "20"})
+    public int poolSize;
+
+    private FilmService filmService;
+    private UserService userService;
+
+    @Override
+    protected List<String> properties() {
+        return List.of("--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--spring.datasource.hikari.minimum-idle=" + poolSize);
+    }
+
+    @Override
+    protected void init() {
+        filmService = bean(FilmService.class);
+        userService = bean(UserService.class);
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return filmService.getFilm(randomFilmId());
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return userService.getFriends(randomUserId(), false);
+    }
+
+    @Benchmark
+    public void addAndDeleteLike() {
+        long filmId = randomFilmId();
+        long userId = randomUserId();
+        filmService.addLike(filmId, userId);
+        filmService.deleteLike(filmId, userId);
+    }
+}
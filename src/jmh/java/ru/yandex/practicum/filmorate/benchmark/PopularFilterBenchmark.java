@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopularFilterBenchmark extends FilmorateState {
+
+    private static final String INSERT_RARE_GENRE =
+            "SELECT genre_id FROM FINAL TABLE (INSERT INTO genre (genre_name) VALUES ('Rare'))";
+
+    // One film in a thousand: sparse enough for the likes_count index walk to pass most films
+    private static final String ADD_RARE_GENRE =
+            "INSERT INTO film_genres (film_id, genre_id) SELECT film_id, ? FROM films WHERE MOD(film_id, 1000) = 0";
+
+    @Param({"true", "false"})
+    public boolean yearIndex;
+
+    private FilmStorage filmStorage;
+    private long rareGenreId;
+
+    @Override
+    protected void init() {
+        filmStorage = bean(FilmStorage.class);
+        JdbcTemplate jdbcTemplate = bean(JdbcTemplate.class);
+        if (!yearIndex) {
+            jdbcTemplate.execute("DROP INDEX films_year_likes_count_idx");
+        }
+        rareGenreId = jdbcTemplate.queryForObject(INSERT_RARE_GENRE, Long.class);
+        jdbcTemplate.update(ADD_RARE_GENRE, rareGenreId);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Benchmark
+    public List<Film> byGenre() {
+        return filmStorage.getTheMostPopularFilms(10, randomGenreId(), null);
+    }
+
+    @Benchmark
+    public List<Film> byRareGenre() {
+        return filmStorage.getTheMostPopularFilms(10, rareGenreId, null);
+    }
+
+    @Benchmark
+    public List<Film> byYear() {
+        return filmStorage.getTheMostPopularFilms(10, null, randomYear());
+    }
+
+    @Benchmark
+    public List<Film> byGenreAndYear() {
+        return filmStorage.getTheMostPopularFilms(10, randomGenreId(), randomYear());
+    }
+
+    @Benchmark
+    public void addAndDeleteLike() {
+        long filmId = randomFilmId();
+        long userId = randomUserId();
+        filmStorage.addLike(filmId, userId);
+        filmStorage.deleteLike(filmId, userId);
+    }
+
+    private static long randomGenreId() {
+        return 1 + ThreadLocalRandom.current().nextInt(6);
+    }
+
+    private static int randomYear() {
+        return 1930 + ThreadLocalRandom.current().nextInt(90);
+    }
+}
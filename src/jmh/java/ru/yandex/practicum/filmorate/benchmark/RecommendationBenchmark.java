@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikesMatrix;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationBenchmark extends FilmorateState {
+
+    private static final String GET_RECOMMENDED_FILM_IDS =
+            "SELECT l.film_id FROM likes l WHERE l.user_id IN (" +
+                    "SELECT o.user_id FROM likes m JOIN likes o ON m.film_id = o.film_id " +
+                    "WHERE m.user_id=? AND o.user_id<>? " +
+                    "GROUP BY o.user_id ORDER BY COUNT(*) DESC, o.user_id LIMIT 50) " +
+                    "AND l.film_id NOT IN (SELECT film_id FROM likes WHERE user_id=?) " +
+                    "GROUP BY l.film_id ORDER BY COUNT(*) DESC, l.film_id LIMIT 10";
+
+    private FilmStorage filmStorage;
+    private LikesMatrix likesMatrix;
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    protected void init() {
+        filmStorage = bean(FilmStorage.class);
+        likesMatrix = bean(LikesMatrix.class);
+        jdbcTemplate = bean(JdbcTemplate.class);
+    }
+
+    @Benchmark
+    public List<Long> recommendIds() {
+        return likesMatrix.recommend(randomUserId(), 10);
+    }
+
+    @Benchmark
+    public List<Film> recommendFilms() {
+        return filmStorage.getRecommendations(randomUserId(), 10);
+    }
+
+    @Benchmark
+    public List<Long> sqlIds() {
+        long userId = randomUserId();
+        return jdbcTemplate.queryForList(GET_RECOMMENDED_FILM_IDS, Long.class, userId, userId, userId);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SuggestionBenchmark extends FilmorateState {
+
+    private static final String GET_SUGGESTED_IDS =
+            "SELECT f2.friend_id FROM friends f1 JOIN friends f2 ON f2.user_id=f1.friend_id " +
+                    "WHERE f1.user_id=? AND f2.friend_id<>f1.user_id AND NOT EXISTS " +
+                    "(SELECT 1 FROM friends f3 WHERE f3.user_id=f1.user_id AND f3.friend_id=f2.friend_id) " +
+                    "GROUP BY f2.friend_id ORDER BY COUNT(DISTINCT f1.friend_id) DESC, f2.friend_id LIMIT 10";
+
+    @Param("100000")
+    public int maxVisited;
+
+    private FriendshipGraph friendshipGraph;
+    private UserStorage userStorage;
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    protected List<String> properties() {
+        return List.of("--filmorate.friends.suggestions.max-visited=" + maxVisited);
+    }
+
+    @Override
+    protected void init() {
+        friendshipGraph = bean(FriendshipGraph.class);
+        userStorage = bean(UserStorage.class);
+        jdbcTemplate = bean(JdbcTemplate.class);
+    }
+
+    @Benchmark
+    public long[] suggestIds() {
+        return friendshipGraph.suggestFriends(randomUserId(), 10);
+    }
+
+    @Benchmark
+    public List<User> suggestions() {
+        return userStorage.getSuggestions(randomUserId(), 10);
+    }
+
+    @Benchmark
+    public List<Long> sqlIds() {
+        return jdbcTemplate.queryForList(GET_SUGGESTED_IDS, Long.class, randomUserId());
+    }
+}
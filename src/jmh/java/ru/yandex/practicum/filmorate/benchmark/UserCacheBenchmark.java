@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.UserCache;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserCacheBenchmark extends FilmorateState {
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    @Param("1000")
+    public int hotUsers;
+
+    private UserService userService;
+
+    @Override
+    protected List<String> properties() {
+        return List.of("--filmorate.cache.users.max-size=" + (cached ? 10000 : 0),
+                "--filmorate.cache.users.ids-enabled=" + cached);
+    }
+
+    @Override
+    protected void init() {
+        userService = bean(UserService.class);
+    }
+
+    @Override
+    public void stopApplication() {
+        System.out.println("User cache footprint: " + bean(UserCache.class).getMemoryFootprint() + " bytes");
+        super.stopApplication();
+    }
+
+    @Benchmark
+    public User getHotUser() {
+        return userService.getUser(1 + ThreadLocalRandom.current().nextInt(Math.min(users, hotUsers)));
+    }
+
+    @Benchmark
+    public User getUser() {
+        return userService.getUser(randomUserId());
+    }
+
+    @Benchmark
+    public Object getMissingUser() {
+        try {
+            return userService.getUser(users + randomUserId());
+        } catch (ItemDoesNotExistException e) {
+            return e;
+        }
+    }
+}
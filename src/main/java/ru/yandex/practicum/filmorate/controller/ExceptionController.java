@@ -1,13 +1,17 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptions;
 
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 @Slf4j
@@ -23,4 +27,29 @@ public class ExceptionController {
         return Map.of(ERROR, "wrong id",
                 MESSAGE, e.getMessage());
     }
+
+    @ExceptionHandler(ValidationExceptions.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleValidation(final RuntimeException e) {
+        log.warn(e.getMessage());
+        return Map.of(ERROR, "bad request",
+                MESSAGE, e.getMessage());
+    }
+
+    // NDJSON imports read the body themselves, so malformed lines do not reach Spring's message converters
+    @ExceptionHandler({JsonProcessingException.class, RuntimeJsonMappingException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleMalformedJson(final Exception e) {
+        log.warn(e.getMessage());
+        return Map.of(ERROR, "bad request",
+                MESSAGE, e.getMessage());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String, String> handleRejectedRequest(final RuntimeException e) {
+        log.warn(e.getMessage());
+        return Map.of(ERROR, "overloaded",
+                MESSAGE, "Too many requests in progress. ");
+    }
 }
\ No newline at end of file
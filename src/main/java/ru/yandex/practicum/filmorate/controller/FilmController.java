@@ -1,6 +1,10 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -10,55 +14,106 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
 
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final RequestExecutor requestExecutor;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper, RequestExecutor requestExecutor) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.requestExecutor = requestExecutor;
     }
 
     @PostMapping
-    public Film create(@RequestBody @Valid final Film film) {
-        return filmService.create(film);
+    public CompletableFuture<Film> create(@RequestBody @Valid final Film film) {
+        return requestExecutor.supply(() -> filmService.create(film));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<List<Long>> createAll(@RequestBody final List<Film> films) {
+        return requestExecutor.supply(() -> filmService.createAll(films));
+    }
+
+    @PostMapping(value = "/batch", consumes = "application/x-ndjson")
+    public List<Long> createAll(final InputStream body) throws IOException {
+        try (MappingIterator<Film> films = objectMapper.readerFor(Film.class).readValues(body)) {
+            return filmService.createAll(films);
+        }
     }
 
     @PutMapping
-    public Film update(@RequestBody @Valid final Film film) {
-        return filmService.update(film);
+    public CompletableFuture<Film> update(@RequestBody @Valid final Film film) {
+        return requestExecutor.supply(() -> filmService.update(film));
     }
 
     @GetMapping
-    public List<Film> getFilms() {
-        return filmService.getFilms();
+    public CompletableFuture<List<Film>> getFilms(@RequestParam(defaultValue = "0") long afterId,
+                                                  @RequestParam(required = false) Integer limit) {
+        return requestExecutor.supply(() -> filmService.getFilms(afterId, limit));
+    }
+
+    @GetMapping(params = "fields")
+    public CompletableFuture<List<Map<String, Object>>> getFilms(@RequestParam(defaultValue = "0") long afterId,
+                                                                 @RequestParam(required = false) Integer limit,
+                                                                 @RequestParam Set<String> fields) {
+        return requestExecutor.supply(() -> filmService.getFilms(afterId, limit, fields));
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        return StreamingJsonArray.of(objectMapper, filmService::streamFilms);
+    }
+
+    @GetMapping("/search")
+    public CompletableFuture<List<Film>> searchFilms(@RequestParam String query,
+                                                    @RequestParam(defaultValue = "10") int count) {
+        return requestExecutor.supply(() -> filmService.searchFilms(query, count));
     }
 
     @GetMapping("/{id}")
-    public Film getFilm(@PathVariable long id) {
-        return filmService.getFilm(id);
+    public CompletableFuture<Film> getFilm(@PathVariable long id) {
+        return requestExecutor.supply(() -> filmService.getFilm(id));
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public void addLike(@PathVariable long id, @PathVariable long userId) {
-        filmService.addLike(id, userId);
+    public CompletableFuture<Void> addLike(@PathVariable long id, @PathVariable long userId) {
+        return requestExecutor.run(() -> filmService.addLike(id, userId));
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public void deleteLike(@PathVariable long id, @PathVariable long userId) {
-        filmService.deleteLike(id, userId);
+    public CompletableFuture<Void> deleteLike(@PathVariable long id, @PathVariable long userId) {
+        return requestExecutor.run(() -> filmService.deleteLike(id, userId));
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getTheMostPopularFilms(count);
+    public CompletableFuture<List<Film>> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                        @RequestParam(required = false) Long genreId,
+                                                        @RequestParam(required = false) Integer year) {
+        return requestExecutor.supply(() -> filmService.getTheMostPopularFilms(count, genreId, year));
+    }
+
+    @GetMapping(value = "/popular", params = "fields")
+    public CompletableFuture<List<Map<String, Object>>> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                                        @RequestParam(required = false) Long genreId,
+                                                                        @RequestParam(required = false) Integer year,
+                                                                        @RequestParam Set<String> fields) {
+        return requestExecutor.supply(() -> filmService.getTheMostPopularFilms(count, genreId, year, fields));
     }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+@Component
+@Slf4j
+public class RequestExecutor {
+
+    private final ThreadPoolTaskExecutor executor;
+
+    public RequestExecutor(@Value("${filmorate.async.enabled:true}") boolean enabled,
+                           @Value("${filmorate.async.pool-size:10}") int poolSize,
+                           @Value("${filmorate.async.queue-capacity:10000}") int queueCapacity,
+                           ObjectProvider<TaskDecorator> taskDecorator) {
+        if (!enabled) {
+            executor = null;
+            log.info("Requests are executed on servlet threads");
+            return;
+        }
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("jdbc-");
+        taskDecorator.ifAvailable(executor::setTaskDecorator);
+        executor.initialize();
+        log.info("Requests are executed on {} JDBC threads, queue capacity {}", poolSize, queueCapacity);
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> action) {
+        if (Objects.isNull(executor)) {
+            try {
+                return CompletableFuture.completedFuture(action.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(action, executor);
+    }
+
+    public CompletableFuture<Void> run(Runnable action) {
+        return supply(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (Objects.nonNull(executor)) {
+            executor.shutdown();
+        }
+    }
+}
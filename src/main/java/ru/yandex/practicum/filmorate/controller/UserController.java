@@ -1,6 +1,10 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -8,60 +12,110 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final RequestExecutor requestExecutor;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper, RequestExecutor requestExecutor) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.requestExecutor = requestExecutor;
     }
 
     @PostMapping
-    public User create(@RequestBody @Valid final User user) {
-        return userService.create(user);
+    public CompletableFuture<User> create(@RequestBody @Valid final User user) {
+        return requestExecutor.supply(() -> userService.create(user));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<List<Long>> createAll(@RequestBody final List<User> users) {
+        return requestExecutor.supply(() -> userService.createAll(users));
+    }
+
+    @PostMapping(value = "/batch", consumes = "application/x-ndjson")
+    public List<Long> createAll(final InputStream body) throws IOException {
+        try (MappingIterator<User> users = objectMapper.readerFor(User.class).readValues(body)) {
+            return userService.createAll(users);
+        }
     }
 
     @PutMapping
-    public User update(@RequestBody @Valid final User user) {
-        return userService.update(user);
+    public CompletableFuture<User> update(@RequestBody @Valid final User user) {
+        return requestExecutor.supply(() -> userService.update(user));
     }
 
     @GetMapping
-    public List<User> getUsers() {
-        return userService.getUsers();
+    public CompletableFuture<List<User>> getUsers(@RequestParam(defaultValue = "0") long afterId,
+                                                  @RequestParam(required = false) Integer limit) {
+        return requestExecutor.supply(() -> userService.getUsers(afterId, limit));
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        return StreamingJsonArray.of(objectMapper, userService::streamUsers);
     }
 
     @GetMapping("/{id}")
-    public User getUser(@PathVariable long id) {
-        return userService.getUser(id);
+    public CompletableFuture<User> getUser(@PathVariable long id) {
+        return requestExecutor.supply(() -> userService.getUser(id));
     }
 
     @PutMapping("/{id}/friends/{friendId}")
-    public User addFriend(@PathVariable long id, @PathVariable long friendId) {
-        return userService.addFriend(id, friendId);
+    public CompletableFuture<User> addFriend(@PathVariable long id, @PathVariable long friendId) {
+        return requestExecutor.supply(() -> userService.addFriend(id, friendId));
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
-    public User deleteFriend(@PathVariable long id, @PathVariable long friendId) {
-        return userService.deleteFriend(id, friendId);
+    public CompletableFuture<User> deleteFriend(@PathVariable long id, @PathVariable long friendId) {
+        return requestExecutor.supply(() -> userService.deleteFriend(id, friendId));
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable long id) {
-        return userService.getFriends(id);
+    public CompletableFuture<List<User>> getFriends(@PathVariable long id,
+                                                    @RequestParam(defaultValue = "false") boolean confirmed) {
+        return requestExecutor.supply(() -> userService.getFriends(id, confirmed));
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public List<User> getCommonFriends(@PathVariable long id, @PathVariable long otherId) {
-        return userService.getCommonFriends(id, otherId);
+    public CompletableFuture<List<User>> getCommonFriends(@PathVariable long id, @PathVariable long otherId,
+                                                          @RequestParam(defaultValue = "false") boolean confirmed) {
+        return requestExecutor.supply(() -> userService.getCommonFriends(id, otherId, confirmed));
+    }
+
+    @GetMapping("/{id}/suggestions")
+    public CompletableFuture<List<User>> getSuggestions(@PathVariable long id,
+                                                        @RequestParam(defaultValue = "10") int count) {
+        return requestExecutor.supply(() -> userService.getSuggestions(id, count));
+    }
+
+    @GetMapping("/{id}/feed")
+    public CompletableFuture<List<FeedEvent>> getFeed(@PathVariable long id,
+                                                      @RequestParam(defaultValue = "" + Long.MAX_VALUE) long beforeId,
+                                                      @RequestParam(defaultValue = "20") int count) {
+        return requestExecutor.supply(() -> userService.getFeed(id, beforeId, count));
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public CompletableFuture<List<Film>> getRecommendations(@PathVariable long id,
+                                                            @RequestParam(defaultValue = "10") int count) {
+        return requestExecutor.supply(() -> userService.getRecommendations(id, count));
     }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.yandex.practicum.filmorate.storage.AggregateCache;
+import ru.yandex.practicum.filmorate.storage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.UserCache;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Configuration
+@ConditionalOnProperty(value = "filmorate.metrics.enabled", matchIfMissing = true)
+public class MetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof QueryCountingDataSource)) {
+                    return new QueryCountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public StorageMetricsAspect storageMetricsAspect(MeterRegistry meterRegistry) {
+        return new StorageMetricsAspect(meterRegistry);
+    }
+
+    @Bean
+    public WebMvcConfigurer requestStatementsConfigurer(DataSource dataSource, MeterRegistry meterRegistry) {
+        QueryCountingDataSource queryCountingDataSource = queryCounting(dataSource);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new RequestStatementsInterceptor(queryCountingDataSource, meterRegistry));
+            }
+        };
+    }
+
+    @Bean
+    public TaskDecorator requestStatementsTaskDecorator(DataSource dataSource) {
+        QueryCountingDataSource queryCountingDataSource = queryCounting(dataSource);
+        return task -> {
+            AtomicLong statements = queryCountingDataSource.getRequestStatements();
+            return () -> {
+                queryCountingDataSource.setRequestStatements(statements);
+                try {
+                    task.run();
+                } finally {
+                    queryCountingDataSource.setRequestStatements(null);
+                }
+            };
+        };
+    }
+
+    @Bean
+    public MeterBinder cacheMetrics(FilmCache filmCache, UserCache userCache) {
+        return registry -> {
+            bindCache(registry, "films", filmCache);
+            bindCache(registry, "users", userCache);
+            Gauge.builder("cache.memory", userCache, UserCache::getMemoryFootprint)
+                    .tag("cache", "users")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    private static void bindCache(MeterRegistry registry, String name, AggregateCache<?> cache) {
+        FunctionCounter.builder("cache.gets", cache, AggregateCache::getHits)
+                .tags("cache", name, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", cache, AggregateCache::getMisses)
+                .tags("cache", name, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", cache, AggregateCache::getEvictions)
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("cache.size", cache, AggregateCache::size)
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    private static QueryCountingDataSource queryCounting(DataSource dataSource) {
+        try {
+            return dataSource.unwrap(QueryCountingDataSource.class);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Data source is not wrapped for query counting", e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    private final AtomicLong statements = new AtomicLong();
+    private final ThreadLocal<AtomicLong> requestStatements = new ThreadLocal<>();
+
+    public QueryCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countStatements(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countStatements(super.getConnection(username, password));
+    }
+
+    public long getStatementCount() {
+        return statements.get();
+    }
+
+    public AtomicLong getRequestStatements() {
+        return requestStatements.get();
+    }
+
+    public void setRequestStatements(AtomicLong counter) {
+        if (counter == null) {
+            requestStatements.remove();
+        } else {
+            requestStatements.set(counter);
+        }
+    }
+
+    public long countStatements(Runnable action) {
+        long before = statements.get();
+        action.run();
+        return statements.get() - before;
+    }
+
+    private Connection countStatements(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("createStatement") || name.startsWith("prepare")) {
+                        statements.incrementAndGet();
+                        AtomicLong counter = requestStatements.get();
+                        if (counter != null) {
+                            counter.incrementAndGet();
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RequestStatementsInterceptor implements AsyncHandlerInterceptor {
+
+    static final String STATEMENTS_SUMMARY = "filmorate.http.statements";
+
+    private static final String STATEMENTS = RequestStatementsInterceptor.class.getName() + ".statements";
+
+    private final QueryCountingDataSource dataSource;
+    private final MeterRegistry meterRegistry;
+
+    public RequestStatementsInterceptor(QueryCountingDataSource dataSource, MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        AtomicLong statements = (AtomicLong) request.getAttribute(STATEMENTS);
+        if (Objects.isNull(statements)) {
+            statements = new AtomicLong();
+            request.setAttribute(STATEMENTS, statements);
+        }
+        dataSource.setRequestStatements(statements);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        dataSource.setRequestStatements(null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        dataSource.setRequestStatements(null);
+        AtomicLong statements = (AtomicLong) request.getAttribute(STATEMENTS);
+        if (Objects.isNull(statements)) {
+            return;
+        }
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder(STATEMENTS_SUMMARY)
+                .description("JDBC statements prepared per HTTP request")
+                .baseUnit("statements")
+                .tag("method", request.getMethod())
+                .tag("uri", Objects.isNull(uri) ? "UNKNOWN" : uri.toString())
+                .register(meterRegistry)
+                .record(statements.get());
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+@Getter
+public enum FilmField {
+    ID("id"),
+    NAME("name"),
+    DESCRIPTION("description"),
+    RELEASE_DATE("releaseDate"),
+    DURATION("duration"),
+    RATE("rate"),
+    LIKES("likes"),
+    MPA("mpa"),
+    GENRES("genres");
+
+    private final String key;
+
+    FilmField(String key) {
+        this.key = key;
+    }
+
+    public static Optional<FilmField> of(String key) {
+        return Arrays.stream(values()).filter(field -> field.key.equals(key)).findFirst();
+    }
+}
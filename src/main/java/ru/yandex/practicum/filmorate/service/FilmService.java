@@ -2,39 +2,53 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
 import ru.yandex.practicum.filmorate.exception.ValidationExceptions;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.MpaStorage;
-import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class FilmService {
     private static final LocalDate DATE_OF_FIRST_FILM = LocalDate.parse("28.12.1895",
             DateTimeFormatter.ofPattern("dd.MM.yyyy"));
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
 
     private final FilmStorage filmStorage;
-    private final UserStorage userStorage;
     private final MpaStorage mpaStorage;
     private final GenreStorage genreStorage;
+    private final Validator validator;
+    private final int importChunkSize;
 
     @Autowired
-    public FilmService(FilmStorage filmStorage,
-                       UserStorage userStorage, MpaStorage mpaStorage, GenreStorage genreStorage) {
+    public FilmService(FilmStorage filmStorage, MpaStorage mpaStorage, GenreStorage genreStorage,
+                       Validator validator, @Value("${filmorate.import.chunk-size:1000}") int importChunkSize) {
         this.filmStorage = filmStorage;
-        this.userStorage = userStorage;
         this.mpaStorage = mpaStorage;
         this.genreStorage = genreStorage;
+        this.validator = validator;
+        this.importChunkSize = importChunkSize;
     }
 
     public Film create(Film film) {
@@ -48,9 +62,39 @@ public class FilmService {
         return filmStorage.create(film);
     }
 
+    // An import is one transaction: a failure in a later chunk rolls back the chunks written before it
+    @Transactional
+    public List<Long> createAll(List<Film> films) {
+        log.info("Batch create request for {} films", films.size());
+        for (int i = 0; i < films.size(); i++) {
+            validateForImport(films.get(i), i);
+        }
+        List<Long> ids = new ArrayList<>(films.size());
+        for (int from = 0; from < films.size(); from += importChunkSize) {
+            ids.addAll(filmStorage.createAll(films.subList(from, Math.min(from + importChunkSize, films.size()))));
+        }
+        return ids;
+    }
+
+    @Transactional
+    public List<Long> createAll(Iterator<Film> films) {
+        log.info("Streaming batch create request for films");
+        List<Long> ids = new ArrayList<>();
+        List<Film> chunk = new ArrayList<>(importChunkSize);
+        while (films.hasNext()) {
+            Film film = films.next();
+            validateForImport(film, ids.size() + chunk.size());
+            chunk.add(film);
+            if (chunk.size() == importChunkSize || !films.hasNext()) {
+                ids.addAll(filmStorage.createAll(chunk));
+                chunk.clear();
+            }
+        }
+        return ids;
+    }
+
     public Film update(Film film) {
         log.info("Update request for film {}", film);
-        containsFilm(film.getId());
         containsMpa(film.getMpa().getId());
         Set<Genre> genres = film.getGenres();
         if (!genres.isEmpty()) {
@@ -65,45 +109,125 @@ public class FilmService {
         return filmStorage.getFilms();
     }
 
+    public List<Film> getFilms(long afterId, Integer limit) {
+        if (afterId == 0 && limit == null) {
+            return getFilms();
+        }
+        log.info("GET request - films after id={}, limit {}", afterId, limit);
+        return filmStorage.getFilms(afterId, pageSize(limit));
+    }
+
+    public List<Map<String, Object>> getFilms(long afterId, Integer limit, Set<String> fields) {
+        log.info("GET request - fields {} of films after id={}, limit {}", fields, afterId, limit);
+        int pageSize = afterId == 0 && Objects.isNull(limit) ? Integer.MAX_VALUE : pageSize(limit);
+        return filmStorage.getFilmFields(afterId, pageSize, parseFields(fields));
+    }
+
+    public void streamFilms(Consumer<Film> consumer) {
+        log.info("GET request - stream all films");
+        filmStorage.streamFilms(consumer);
+    }
+
     public Film getFilm(long id) {
         log.info("GET request - film with id={}", id);
-        containsFilm(id);
-        return filmStorage.getFilm(id);
+        Film film = filmStorage.getFilm(id);
+        if (Objects.isNull(film)) {
+            throw new ItemDoesNotExistException("Film with id=" + id + " not exist. ");
+        }
+        return film;
     }
 
     public void addLike(long filmId, long userId) {
         log.info("Add like for film id={} from user id={}", filmId, userId);
-        containsUser(userId);
         filmStorage.addLike(filmId, userId);
     }
 
     public void deleteLike(long filmId, long userId) {
         log.info("Delete like for film id={} from user id={}", filmId, userId);
-        containsFilm(filmId);
-        containsUser(userId);
         filmStorage.deleteLike(filmId, userId);
     }
 
     public List<Film> getTheMostPopularFilms(int count) {
         log.info("GET request - popular films, highest {}", count);
-        return filmStorage.getTheMostPopularFilms(count);
+        return filmStorage.getTheMostPopularFilms(count(count));
     }
 
-    private void validateDateCreation(Film film) {
-        if (film.getReleaseDate().isBefore(DATE_OF_FIRST_FILM)) {
-            throw new ValidationExceptions("Bad date");
+    public List<Film> getTheMostPopularFilms(int count, Long genreId, Integer year) {
+        if (Objects.isNull(genreId) && Objects.isNull(year)) {
+            return getTheMostPopularFilms(count);
+        }
+        log.info("GET request - popular films, highest {}, genre id={}, year {}", count, genreId, year);
+        if (Objects.nonNull(genreId)) {
+            containsGenre(genreId);
         }
+        return filmStorage.getTheMostPopularFilms(count(count), genreId, year);
     }
 
-    private void containsUser(long id) {
-        if (!userStorage.containsUser(id)) {
-            throw new ItemDoesNotExistException("User with id=" + id + " not exist. ");
+    public List<Map<String, Object>> getTheMostPopularFilms(int count, Long genreId, Integer year,
+                                                            Set<String> fields) {
+        log.info("GET request - fields {} of popular films, highest {}, genre id={}, year {}",
+                fields, count, genreId, year);
+        if (Objects.nonNull(genreId)) {
+            containsGenre(genreId);
         }
+        return filmStorage.getPopularFilmFields(count(count), genreId, year, parseFields(fields));
     }
 
-    private void containsFilm(long id) {
-        if (!filmStorage.containsFilm(id)) {
-            throw new ItemDoesNotExistException("Film with id=" + id + " not exist. ");
+    public List<Film> searchFilms(String query, int count) {
+        log.info("GET request - search films by \"{}\", highest {}", query, count);
+        return filmStorage.searchFilms(query, Math.min(count(count), MAX_PAGE_SIZE));
+    }
+
+    // Popular counts are not capped: counts above filmorate.popular.max-count are read from the likes_count index
+    private int count(int count) {
+        if (count <= 0) {
+            throw new ValidationExceptions("Bad count");
+        }
+        return count;
+    }
+
+    private int pageSize(Integer limit) {
+        if (Objects.isNull(limit)) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0) {
+            throw new ValidationExceptions("Bad limit");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private Set<FilmField> parseFields(Set<String> names) {
+        if (names.isEmpty()) {
+            throw new ValidationExceptions("No fields");
+        }
+        Set<FilmField> fields = EnumSet.noneOf(FilmField.class);
+        for (String name : names) {
+            fields.add(FilmField.of(name).orElseThrow(() -> new ValidationExceptions("Unknown field " + name)));
+        }
+        return fields;
+    }
+
+    private void validateForImport(Film film, int index) {
+        if (Objects.isNull(film)) {
+            throw new ValidationExceptions("Film #" + index + ": absent");
+        }
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            throw new ValidationExceptions("Film #" + index + ": " + violations.iterator().next().getMessage());
+        }
+        if (Objects.isNull(film.getMpa())) {
+            throw new ValidationExceptions("Film #" + index + ": MPA absent");
+        }
+        containsMpa(film.getMpa().getId());
+        if (Objects.nonNull(film.getGenres())) {
+            film.getGenres().forEach(genre -> containsGenre(genre.getId()));
+        }
+        validateDateCreation(film);
+    }
+
+    private void validateDateCreation(Film film) {
+        if (film.getReleaseDate().isBefore(DATE_OF_FIRST_FILM)) {
+            throw new ValidationExceptions("Bad date");
         }
     }
 
@@ -2,23 +2,44 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptions;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class UserService {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
 
     private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final Validator validator;
+    private final int importChunkSize;
 
     @Autowired
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, FilmStorage filmStorage, Validator validator,
+                       @Value("${filmorate.import.chunk-size:1000}") int importChunkSize) {
         this.userStorage = userStorage;
+        this.filmStorage = filmStorage;
+        this.validator = validator;
+        this.importChunkSize = importChunkSize;
     }
 
     public User create(User user) {
@@ -27,9 +48,39 @@ public class UserService {
         return userStorage.create(user);
     }
 
+    // An import is one transaction: a failure in a later chunk rolls back the chunks written before it
+    @Transactional
+    public List<Long> createAll(List<User> users) {
+        log.info("Batch create request for {} users", users.size());
+        for (int i = 0; i < users.size(); i++) {
+            validateForImport(users.get(i), i);
+        }
+        List<Long> ids = new ArrayList<>(users.size());
+        for (int from = 0; from < users.size(); from += importChunkSize) {
+            ids.addAll(userStorage.createAll(users.subList(from, Math.min(from + importChunkSize, users.size()))));
+        }
+        return ids;
+    }
+
+    @Transactional
+    public List<Long> createAll(Iterator<User> users) {
+        log.info("Streaming batch create request for users");
+        List<Long> ids = new ArrayList<>();
+        List<User> chunk = new ArrayList<>(importChunkSize);
+        while (users.hasNext()) {
+            User user = users.next();
+            validateForImport(user, ids.size() + chunk.size());
+            chunk.add(user);
+            if (chunk.size() == importChunkSize || !users.hasNext()) {
+                ids.addAll(userStorage.createAll(chunk));
+                chunk.clear();
+            }
+        }
+        return ids;
+    }
+
     public User update(User user) {
         log.info("Update request for user {}", user);
-        containsUser(user.getId());
         fillUserName(user);
         return userStorage.update(user);
     }
@@ -39,9 +90,21 @@ public class UserService {
         return userStorage.getUsers();
     }
 
+    public List<User> getUsers(long afterId, Integer limit) {
+        if (afterId == 0 && limit == null) {
+            return getUsers();
+        }
+        log.info("GET request - users after id={}, limit {}", afterId, limit);
+        return userStorage.getUsers(afterId, pageSize(limit));
+    }
+
+    public void streamUsers(Consumer<User> consumer) {
+        log.info("GET request - stream all users");
+        userStorage.streamUsers(consumer);
+    }
+
     public User getUser(long id) {
         log.info("GET request - user id={} ", id);
-        containsUser(id);
         return userStorage.getUser(id);
     }
 
@@ -50,8 +113,6 @@ public class UserService {
         if (userId == friendId) {
             throw new ItemDoesNotExistException(" ids are equals. ");
         }
-        containsUser(userId);
-        containsUser(friendId);
         return userStorage.addFriend(userId, friendId);
     }
 
@@ -60,23 +121,72 @@ public class UserService {
         if (userId == friendId) {
             throw new ItemDoesNotExistException(" ids are equals. ");
         }
-        containsUser(userId);
-        containsUser(friendId);
         return userStorage.deleteFriend(userId, friendId);
     }
 
-    public List<User> getFriends(long userId) {
-        log.info("Get list friends of user with id={}", userId);
-        containsUser(userId);
-        return userStorage.getFriends(userId);
+    public List<User> getFriends(long userId, boolean confirmed) {
+        log.info("Get list friends of user with id={}, confirmed only {}", userId, confirmed);
+        return userStorage.getFriends(userId, confirmed);
+    }
+
+    public List<User> getCommonFriends(long userId, long otherUserId, boolean confirmed) {
+        log.info("Get request for common list of friends of user with id={} and user with id={}, confirmed only {}"
+                , userId, otherUserId, confirmed);
+        return userStorage.getCommonFriends(userId, otherUserId, confirmed);
+    }
+
+    public List<Film> getRecommendations(long userId, int count) {
+        log.info("GET request - film recommendations for user with id={}, highest {}", userId, count);
+        if (!userStorage.containsUser(userId)) {
+            throw new ItemDoesNotExistException("User with id=" + userId + " not exist. ");
+        }
+        if (count <= 0) {
+            throw new ValidationExceptions("Bad count");
+        }
+        return filmStorage.getRecommendations(userId, Math.min(count, MAX_PAGE_SIZE));
+    }
+
+    public List<FeedEvent> getFeed(long userId, long beforeId, int count) {
+        log.info("GET request - feed of user with id={}, before event id={}, highest {}", userId, beforeId, count);
+        if (!userStorage.containsUser(userId)) {
+            throw new ItemDoesNotExistException("User with id=" + userId + " not exist. ");
+        }
+        if (count <= 0) {
+            throw new ValidationExceptions("Bad count");
+        }
+        return filmStorage.getLikeEvents(userStorage.getFriendIds(userId), beforeId, Math.min(count, MAX_PAGE_SIZE));
+    }
+
+    public List<User> getSuggestions(long userId, int count) {
+        log.info("GET request - friend suggestions for user with id={}, highest {}", userId, count);
+        if (!userStorage.containsUser(userId)) {
+            throw new ItemDoesNotExistException("User with id=" + userId + " not exist. ");
+        }
+        if (count <= 0) {
+            throw new ValidationExceptions("Bad count");
+        }
+        return userStorage.getSuggestions(userId, Math.min(count, MAX_PAGE_SIZE));
+    }
+
+    private int pageSize(Integer limit) {
+        if (Objects.isNull(limit)) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0) {
+            throw new ValidationExceptions("Bad limit");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
     }
 
-    public List<User> getCommonFriends(long userId, long otherUserId) {
-        log.info("Get request for common list of friends of user with id={} and user with id={} "
-                , userId, otherUserId);
-        containsUser(userId);
-        containsUser(otherUserId);
-        return userStorage.getCommonFriends(userId, otherUserId);
+    private void validateForImport(User user, int index) {
+        if (Objects.isNull(user)) {
+            throw new ValidationExceptions("User #" + index + ": absent");
+        }
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            throw new ValidationExceptions("User #" + index + ": " + violations.iterator().next().getMessage());
+        }
+        fillUserName(user);
     }
 
     private void fillUserName(User user) {
@@ -85,10 +195,4 @@ public class UserService {
             user.setName(user.getLogin());
         }
     }
-
-    private void containsUser(long id) {
-        if (!userStorage.containsUser(id)) {
-            throw new ItemDoesNotExistException("User with id=" + id + " not exist. ");
-        }
-    }
 }
\ No newline at end of file
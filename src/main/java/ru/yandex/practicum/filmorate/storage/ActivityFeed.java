@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+public class ActivityFeed {
+
+    private static final String GET_LIKES = "SELECT like_id, user_id, film_id, created_at FROM likes " +
+            "ORDER BY user_id, like_id";
+
+    private static final FeedEvent[] NO_EVENTS = new FeedEvent[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int eventsPerUser;
+    // Newest first, at most eventsPerUser per user; arrays are replaced on change and never modified
+    private final Map<Long, FeedEvent[]> events = new ConcurrentHashMap<>();
+
+    public ActivityFeed(JdbcTemplate jdbcTemplate, @Value("${filmorate.feed.events-per-user:50}") int eventsPerUser) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventsPerUser = eventsPerUser;
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Long, Deque<FeedEvent>> recent = new HashMap<>();
+        jdbcTemplate.query(GET_LIKES, (RowCallbackHandler) rs -> {
+            FeedEvent event = FeedEvent.builder()
+                    .id(rs.getLong("like_id"))
+                    .userId(rs.getLong("user_id"))
+                    .filmId(rs.getLong("film_id"))
+                    .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                    .build();
+            Deque<FeedEvent> userEvents = recent.computeIfAbsent(event.getUserId(), id -> new ArrayDeque<>());
+            userEvents.addFirst(event);
+            if (userEvents.size() > eventsPerUser) {
+                userEvents.removeLast();
+            }
+        });
+        events.clear();
+        recent.forEach((userId, userEvents) -> events.put(userId, userEvents.toArray(FeedEvent[]::new)));
+        log.info("Activity feed loaded for {} users", events.size());
+    }
+
+    public void addLike(FeedEvent event) {
+        events.compute(event.getUserId(), (id, userEvents) -> insert(userEvents, event));
+    }
+
+    public void deleteLike(long filmId, long userId) {
+        events.computeIfPresent(userId, (id, userEvents) -> remove(userEvents, filmId));
+    }
+
+    // Merges the newest-first events of every user, keeping one cursor per user in the heap
+    public List<FeedEvent> getFeed(long[] userIds, long beforeId, int count) {
+        List<Cursor> cursors = new ArrayList<>(userIds.length);
+        for (long userId : userIds) {
+            FeedEvent[] userEvents = events.getOrDefault(userId, NO_EVENTS);
+            int position = firstBefore(userEvents, beforeId);
+            if (position < userEvents.length) {
+                cursors.add(new Cursor(userEvents, position));
+            }
+        }
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(cursors);
+        List<FeedEvent> feed = new ArrayList<>(Math.min(count, eventsPerUser * cursors.size()));
+        while (feed.size() < count && !heap.isEmpty()) {
+            Cursor cursor = heap.poll();
+            feed.add(cursor.events[cursor.position]);
+            if (cursor.next()) {
+                heap.add(cursor);
+            }
+        }
+        return feed;
+    }
+
+    private static int firstBefore(FeedEvent[] userEvents, long beforeId) {
+        if (userEvents.length == 0 || userEvents[0].getId() < beforeId) {
+            return 0;
+        }
+        int low = 0;
+        int high = userEvents.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (userEvents[middle].getId() >= beforeId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private FeedEvent[] insert(FeedEvent[] userEvents, FeedEvent event) {
+        if (userEvents == null) {
+            return new FeedEvent[]{event};
+        }
+        // Likes commit out of order under concurrency, so the event is placed by id rather than prepended
+        int position = firstBefore(userEvents, event.getId());
+        if (position == eventsPerUser) {
+            return userEvents;
+        }
+        int size = Math.min(userEvents.length + 1, eventsPerUser);
+        FeedEvent[] result = new FeedEvent[size];
+        System.arraycopy(userEvents, 0, result, 0, position);
+        result[position] = event;
+        System.arraycopy(userEvents, position, result, position + 1, size - position - 1);
+        return result;
+    }
+
+    private static FeedEvent[] remove(FeedEvent[] userEvents, long filmId) {
+        for (int i = 0; i < userEvents.length; i++) {
+            if (userEvents[i].getFilmId() == filmId) {
+                if (userEvents.length == 1) {
+                    return null;
+                }
+                FeedEvent[] result = new FeedEvent[userEvents.length - 1];
+                System.arraycopy(userEvents, 0, result, 0, i);
+                System.arraycopy(userEvents, i + 1, result, i, userEvents.length - i - 1);
+                return result;
+            }
+        }
+        return userEvents;
+    }
+
+    // Caches the id of the current event so heap comparisons do not follow the event reference
+    private static final class Cursor implements Comparable<Cursor> {
+        private final FeedEvent[] events;
+        private int position;
+        private long id;
+
+        private Cursor(FeedEvent[] events, int position) {
+            this.events = events;
+            this.position = position;
+            this.id = events[position].getId();
+        }
+
+        private boolean next() {
+            if (++position == events.length) {
+                return false;
+            }
+            id = events[position].getId();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return Long.compare(other.id, id);
+        }
+    }
+}
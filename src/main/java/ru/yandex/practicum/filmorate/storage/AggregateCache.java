@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+public abstract class AggregateCache<T> {
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Long, Entry<T>> values;
+    // A load may only be stored if no invalidation of its stripe happened since the load started
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    protected AggregateCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.values = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry<T>> eldest) {
+                if (size() > AggregateCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    protected abstract long idOf(T value);
+
+    protected abstract T copy(T value);
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public long version(long id) {
+        return versions.get(stripe(id));
+    }
+
+    public synchronized T get(long id) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Entry<T> entry = values.get(id);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt - System.nanoTime() < 0) {
+            values.remove(id);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(entry.value);
+    }
+
+    public void put(T value, long version) {
+        if (!isEnabled()) {
+            return;
+        }
+        long id = idOf(value);
+        Entry<T> entry = new Entry<>(copy(value), System.nanoTime() + ttlNanos);
+        synchronized (this) {
+            if (versions.get(stripe(id)) == version) {
+                values.put(id, entry);
+            }
+        }
+    }
+
+    public synchronized void invalidate(long id) {
+        versions.incrementAndGet(stripe(id));
+        values.remove(id);
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        values.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+
+    protected synchronized long sum(ToLongFunction<T> function) {
+        long sum = 0;
+        for (Entry<T> entry : values.values()) {
+            sum += function.applyAsLong(entry.value);
+        }
+        return sum;
+    }
+
+    private static int stripe(long id) {
+        return (int) (id & (VERSION_STRIPES - 1));
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final long expiresAt;
+
+        private Entry(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Runs the after-commit actions of one key in the order their transactions locked its row. A transaction releases
+// the lock at commit, before its callbacks run, so the next one may commit and call back first without this
+@Slf4j
+final class CommitOrder {
+
+    private final Map<Long, Deque<Change>> pending = new ConcurrentHashMap<>();
+
+    // Must be called while the transaction holds the row lock of the key
+    Change change(long key) {
+        Change change = new Change();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.committed = true;
+            change.done = true;
+            return change;
+        }
+        pending.compute(key, (k, changes) -> {
+            Deque<Change> queue = changes == null ? new ArrayDeque<>() : changes;
+            queue.add(change);
+            return queue;
+        });
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                complete(key, change, status == STATUS_COMMITTED);
+            }
+        });
+        return change;
+    }
+
+    private void complete(long key, Change change, boolean committed) {
+        pending.computeIfPresent(key, (k, changes) -> {
+            change.committed = committed;
+            change.done = true;
+            while (!changes.isEmpty() && changes.peek().done) {
+                changes.poll().apply();
+            }
+            return changes.isEmpty() ? null : changes;
+        });
+    }
+
+    static final class Change {
+        private Runnable action;
+        private boolean committed;
+        private boolean done;
+
+        private Change() {
+        }
+
+        // Without a transaction the action runs at once
+        void onCommit(Runnable action) {
+            if (done) {
+                action.run();
+                return;
+            }
+            this.action = action;
+        }
+
+        private void apply() {
+            if (!committed || action == null) {
+                return;
+            }
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.error("After-commit action failed", e);
+            }
+        }
+    }
+}
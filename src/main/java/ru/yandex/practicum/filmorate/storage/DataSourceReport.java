@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Slf4j
+public class DataSourceReport {
+
+    // LOCK_TIMEOUT is a session setting that information_schema.settings does not list
+    private static final String GET_H2_SETTINGS = "SELECT setting_name, setting_value " +
+            "FROM information_schema.settings WHERE setting_name IN " +
+            "('CACHE_SIZE', 'QUERY_CACHE_SIZE', 'WRITE_DELAY', 'MAX_COMPACT_TIME', 'RETENTION_TIME', 'COMPRESS') " +
+            "UNION ALL SELECT 'LOCK_TIMEOUT', CAST(LOCK_TIMEOUT() AS VARCHAR) " +
+            "ORDER BY setting_name";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public DataSourceReport(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() throws SQLException {
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+            log.info("Connection pool {}: maximumPoolSize={}, minimumIdle={}, connectionTimeout={}ms, " +
+                            "maxLifetime={}ms", pool.getPoolName(), pool.getMaximumPoolSize(), pool.getMinimumIdle(),
+                    pool.getConnectionTimeout(), pool.getMaxLifetime());
+        } else {
+            log.info("Connection pool: none, using {}", dataSource.getClass().getSimpleName());
+        }
+        log.info("JdbcTemplate: fetchSize={}, maxRows={}, queryTimeout={}s", jdbcTemplate.getFetchSize(),
+                jdbcTemplate.getMaxRows(), jdbcTemplate.getQueryTimeout());
+        log.info("H2 settings: {}", getH2Settings());
+    }
+
+    public Map<String, String> getH2Settings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        jdbcTemplate.query(GET_H2_SETTINGS, (RowCallbackHandler) rs ->
+                settings.put(rs.getString("setting_name"), rs.getString("setting_value")));
+        return settings;
+    }
+}
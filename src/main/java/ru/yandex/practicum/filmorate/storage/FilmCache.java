@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+
+@Component
+public class FilmCache extends AggregateCache<Film> {
+
+    public FilmCache(@Value("${filmorate.cache.films.max-size:10000}") int maxSize,
+                     @Value("${filmorate.cache.films.ttl:10m}") Duration ttl) {
+        super(maxSize, ttl);
+    }
+
+    @Override
+    protected long idOf(Film film) {
+        return film.getId();
+    }
+
+    @Override
+    protected Film copy(Film film) {
+        Film copy = Film.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .rate(film.getRate())
+                .mpa(film.getMpa())
+                .build();
+        copy.setGenres(new LinkedHashSet<>(film.getGenres()));
+        return copy;
+    }
+}
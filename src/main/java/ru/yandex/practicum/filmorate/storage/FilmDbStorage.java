@@ -1,15 +1,31 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -17,194 +33,686 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component("filmDbStorage")
 public class FilmDbStorage implements FilmStorage {
 
+    // Film reads join MPA and genres into one result, one row per genre, so films are built in a single pass;
+    // the page and top queries limit films in a derived table before the genre rows are joined
     private static final String GET_FILMS =
-            "SELECT F.FILM_ID AS ID, F.FILM_NAME, F.RELEASE_DATE, F.DESCRIPTION, F.DURATION, F.RATE, M.MPA_ID, " +
-                    "MP.MPA_NAME FROM FILMS F LEFT JOIN FILM_MPAS M ON F.FILM_ID = M.FILM_ID " +
+            "SELECT F.FILM_ID, F.FILM_NAME, F.RELEASE_DATE, F.DESCRIPTION, F.DURATION, F.RATE, M.MPA_ID, " +
+                    "MP.MPA_NAME, FG.GENRE_ID, G.GENRE_NAME FROM FILMS F " +
+                    "LEFT JOIN FILM_MPAS M ON F.FILM_ID = M.FILM_ID " +
+                    "LEFT JOIN MPA MP ON M.MPA_ID = MP.MPA_ID " +
+                    "LEFT JOIN FILM_GENRES FG ON F.FILM_ID = FG.FILM_ID " +
+                    "LEFT JOIN GENRE G ON FG.GENRE_ID = G.GENRE_ID " +
+                    "ORDER BY F.FILM_ID, FG.GENRE_ID";
+
+    private static final String GET_FILMS_PAGE =
+            "SELECT F.FILM_ID, F.FILM_NAME, F.RELEASE_DATE, F.DESCRIPTION, F.DURATION, F.RATE, M.MPA_ID, " +
+                    "MP.MPA_NAME, FG.GENRE_ID, G.GENRE_NAME " +
+                    "FROM (SELECT FILM_ID, FILM_NAME, RELEASE_DATE, DESCRIPTION, DURATION, RATE FROM FILMS " +
+                    "WHERE FILM_ID > ? ORDER BY FILM_ID LIMIT ?) F " +
+                    "LEFT JOIN FILM_MPAS M ON F.FILM_ID = M.FILM_ID " +
                     "LEFT JOIN MPA MP ON M.MPA_ID = MP.MPA_ID " +
-                    "ORDER BY F.FILM_ID ";
+                    "LEFT JOIN FILM_GENRES FG ON F.FILM_ID = FG.FILM_ID " +
+                    "LEFT JOIN GENRE G ON FG.GENRE_ID = G.GENRE_ID " +
+                    "ORDER BY F.FILM_ID, FG.GENRE_ID";
 
     private static final String GET_BEST_FILMS =
-            "SELECT F.FILM_ID AS ID, F.FILM_NAME, F.RELEASE_DATE, F.DESCRIPTION, F.DURATION, F.RATE, " +
-                    "COUNT(L.USER_ID) AS liked, M.MPA_ID, MP.MPA_NAME " +
-                    "FROM FILMS F " +
+            "SELECT F.FILM_ID, F.FILM_NAME, F.RELEASE_DATE, F.DESCRIPTION, F.DURATION, F.RATE, M.MPA_ID, " +
+                    "MP.MPA_NAME, FG.GENRE_ID, G.GENRE_NAME " +
+                    "FROM (SELECT FILM_ID, FILM_NAME, RELEASE_DATE, DESCRIPTION, DURATION, RATE, LIKES_COUNT " +
+                    "FROM FILMS ORDER BY LIKES_COUNT DESC, FILM_ID LIMIT ?) F " +
                     "LEFT JOIN FILM_MPAS M ON F.FILM_ID = M.FILM_ID " +
                     "LEFT JOIN MPA MP ON M.MPA_ID = MP.MPA_ID " +
-                    "LEFT JOIN LIKES L ON F.FILM_ID = L.FILM_ID  " +
-                    "GROUP BY F.FILM_ID " +
-                    "ORDER BY LIKED DESC LIMIT ?";
+                    "LEFT JOIN FILM_GENRES FG ON F.FILM_ID = FG.FILM_ID " +
+                    "LEFT JOIN GENRE G ON FG.GENRE_ID = G.GENRE_ID " +
+                    "ORDER BY F.LIKES_COUNT DESC, F.FILM_ID, FG.GENRE_ID";
+
+    private static final String GET_BEST_FILM_IDS =
+            "SELECT F.FILM_ID FROM FILMS F ORDER BY F.LIKES_COUNT DESC, F.FILM_ID LIMIT ?";
+
+    private static final String GET_BEST_FILM_IDS_BY_GENRE =
+            "SELECT F.FILM_ID FROM FILMS F " +
+                    "WHERE EXISTS (SELECT 1 FROM FILM_GENRES G WHERE G.FILM_ID = F.FILM_ID AND G.GENRE_ID=?) " +
+                    "ORDER BY F.LIKES_COUNT DESC, F.FILM_ID LIMIT ?";
+
+    // A genre with few films is read from FILM_GENRES_GENRE_FILM_IDX and sorted: walking the likes_count index would
+    // pass most films before finding count films of it
+    private static final String GET_BEST_FILM_IDS_OF_SPARSE_GENRE =
+            "SELECT F.FILM_ID FROM FILM_GENRES G JOIN FILMS F ON F.FILM_ID = G.FILM_ID WHERE G.GENRE_ID=? " +
+                    "ORDER BY F.LIKES_COUNT DESC, F.FILM_ID LIMIT ?";
+
+    private static final String COUNT_GENRE_FILMS_UP_TO =
+            "SELECT COUNT(*) FROM (SELECT 1 FROM FILM_GENRES WHERE GENRE_ID=? LIMIT ?)";
+
+    // The leading RELEASE_YEAR lets H2 read FILMS_YEAR_LIKES_COUNT_IDX in order instead of sorting the year
+    private static final String GET_BEST_FILM_IDS_BY_YEAR =
+            "SELECT F.FILM_ID FROM FILMS F WHERE F.RELEASE_YEAR=? " +
+                    "ORDER BY F.RELEASE_YEAR, F.LIKES_COUNT DESC, F.FILM_ID LIMIT ?";
+
+    private static final String GET_BEST_FILM_IDS_BY_GENRE_AND_YEAR =
+            "SELECT F.FILM_ID FROM FILMS F WHERE F.RELEASE_YEAR=? " +
+                    "AND EXISTS (SELECT 1 FROM FILM_GENRES G WHERE G.FILM_ID = F.FILM_ID AND G.GENRE_ID=?) " +
+                    "ORDER BY F.RELEASE_YEAR, F.LIKES_COUNT DESC, F.FILM_ID LIMIT ?";
+
+    private static final String GET_FILMS_BY_IDS =
+            "SELECT F.FILM_ID, F.FILM_NAME, F.RELEASE_DATE, F.DESCRIPTION, F.DURATION, F.RATE, M.MPA_ID, " +
+                    "MP.MPA_NAME, FG.GENRE_ID, G.GENRE_NAME FROM FILMS F " +
+                    "LEFT JOIN FILM_MPAS M ON F.FILM_ID = M.FILM_ID " +
+                    "LEFT JOIN MPA MP ON M.MPA_ID = MP.MPA_ID " +
+                    "LEFT JOIN FILM_GENRES FG ON F.FILM_ID = FG.FILM_ID " +
+                    "LEFT JOIN GENRE G ON FG.GENRE_ID = G.GENRE_ID " +
+                    "WHERE F.FILM_ID IN (%s) " +
+                    "ORDER BY F.FILM_ID, FG.GENRE_ID";
+
+    // Projections select only the requested columns and join MPA only when it is requested
+    private static final String GET_FILM_FIELDS_PAGE = "SELECT %s FROM FILMS F%s WHERE F.FILM_ID > ? " +
+            "ORDER BY F.FILM_ID LIMIT ?";
+
+    private static final String GET_FILM_FIELDS_BY_IDS = "SELECT %s FROM FILMS F%s WHERE F.FILM_ID IN (%%s)";
+
+    private static final String JOIN_MPA = " LEFT JOIN FILM_MPAS M ON F.FILM_ID = M.FILM_ID " +
+            "LEFT JOIN MPA MP ON M.MPA_ID = MP.MPA_ID";
 
     private static final String GET_FILM =
-            "SELECT F.FILM_ID  AS ID, F.FILM_NAME, F.RELEASE_DATE, F.DESCRIPTION, F.DURATION, F.RATE, " +
-                    "M.MPA_ID, MP.MPA_NAME  FROM FILMS F " +
+            "SELECT F.FILM_ID, F.FILM_NAME, F.RELEASE_DATE, F.DESCRIPTION, F.DURATION, F.RATE, M.MPA_ID, " +
+                    "MP.MPA_NAME, FG.GENRE_ID, G.GENRE_NAME FROM FILMS F " +
                     "LEFT JOIN FILM_MPAS M ON F.FILM_ID = M.FILM_ID " +
                     "LEFT JOIN MPA MP ON M.MPA_ID = MP.MPA_ID " +
-                    "WHERE F.FILM_ID=? ";
+                    "LEFT JOIN FILM_GENRES FG ON F.FILM_ID = FG.FILM_ID " +
+                    "LEFT JOIN GENRE G ON FG.GENRE_ID = G.GENRE_ID " +
+                    "WHERE F.FILM_ID=? " +
+                    "ORDER BY FG.GENRE_ID";
 
-    private static final String GET_FILM_GENRES =
-            "SELECT f.genre_id AS id, g.genre_name AS name " +
+    private static final String GET_FILMS_GENRES =
+            "SELECT f.film_id, f.genre_id, g.genre_name " +
                     "FROM film_genres f " +
                     "LEFT JOIN  genre g ON f.genre_id = g.genre_id " +
-                    "WHERE f.film_id = ? " +
-                    "ORDER BY g.genre_id";
+                    "WHERE f.film_id IN (%s) " +
+                    "ORDER BY f.film_id, g.genre_id";
+
+    private static final int IN_BATCH_SIZE = 1000;
+
+    private static final int STREAM_PAGE_SIZE = 500;
 
     private static final String GET_FILM_ID = "SELECT film_id FROM films WHERE film_id=?";
 
+    private static final String COUNT_FILM_AND_USER = "SELECT (SELECT COUNT(*) FROM films WHERE film_id=?) + " +
+            "(SELECT COUNT(*) FROM users WHERE user_id=?)";
+
+    private static final String GET_FILM_GENRE_IDS = "SELECT genre_id FROM film_genres WHERE film_id=?";
+
+    private static final String INSERT_FILM = "INSERT INTO films (film_name, release_date, description, duration, rate) " +
+            "VALUES (?,?,?,?,?)";
+
     private static final String INSERT_FILM_GENRE = "INSERT INTO film_genres (film_id, genre_id) VALUES (?,?)";
 
     private static final String INSERT_FILM_MPA = "INSERT INTO film_mpas (film_id, mpa_id) VALUES (?,?)";
 
-    private static final String INSERT_LIKE = "INSERT INTO likes (film_id, user_id) VALUES (?,?)";
+    private static final String MERGE_LIKE = "MERGE INTO likes l USING (VALUES (CAST(? AS INTEGER), " +
+            "CAST(? AS INTEGER), CAST(? AS TIMESTAMP))) s (film_id, user_id, created_at) " +
+            "ON l.film_id=s.film_id AND l.user_id=s.user_id " +
+            "WHEN NOT MATCHED THEN INSERT (film_id, user_id, created_at) VALUES (s.film_id, s.user_id, s.created_at)";
+
+    // Returns the name and description the row had before the update, the search index needs both to reindex
+    private static final String UPDATE_FILM = "SELECT film_name, description FROM OLD TABLE (" +
+            "UPDATE films SET film_name=?, release_date=?, description=?, duration=?, rate=? WHERE film_id=?)";
 
-    private static final String UPDATE_FILM = "UPDATE films SET film_name=?, release_date=?, " +
-            "description=?, duration=?, rate=? WHERE film_id=? ";
+    private static final String UPDATE_LIKES_COUNT = "UPDATE films SET likes_count=likes_count+? WHERE film_id=? ";
+
+    private static final String RECOUNT_LIKES = "UPDATE films f SET likes_count=" +
+            "(SELECT COUNT(*) FROM likes l WHERE l.film_id=f.film_id) ";
 
     private static final String DELETE_LIKE = "DELETE FROM likes WHERE film_id=? AND user_id=? ";
 
     private static final String DELETE_FILM_GENRE = "DELETE FROM film_genres WHERE film_id=? AND genre_id=? ";
 
-    private static final String DELETE_FILM_MPA = "DELETE FROM film_mpas WHERE film_id=? AND mpa_id=? ";
+    private static final String UPDATE_FILM_MPA = "UPDATE film_mpas SET mpa_id=? WHERE film_id=? AND mpa_id<>? ";
 
     private final JdbcTemplate jdbcTemplate;
+    private final PopularFilmsRanking popularFilmsRanking;
+    private final MpaStorage mpaStorage;
+    private final GenreStorage genreStorage;
+    private final FilmCache filmCache;
+    private final LikesMatrix likesMatrix;
+    private final FilmSearchIndex filmSearchIndex;
+    private final ActivityFeed activityFeed;
+    private final int sparseGenreFilms;
+    private final CommitOrder filmChanges = new CommitOrder();
 
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, PopularFilmsRanking popularFilmsRanking,
+                         MpaStorage mpaStorage, GenreStorage genreStorage, FilmCache filmCache,
+                         LikesMatrix likesMatrix, FilmSearchIndex filmSearchIndex, ActivityFeed activityFeed,
+                         @Value("${filmorate.popular.sparse-genre-films:10000}") int sparseGenreFilms) {
         this.jdbcTemplate = jdbcTemplate;
+        this.popularFilmsRanking = popularFilmsRanking;
+        this.mpaStorage = mpaStorage;
+        this.genreStorage = genreStorage;
+        this.filmCache = filmCache;
+        this.likesMatrix = likesMatrix;
+        this.filmSearchIndex = filmSearchIndex;
+        this.activityFeed = activityFeed;
+        this.sparseGenreFilms = sparseGenreFilms;
     }
 
     @Override
     public Film getFilm(long id) {
-        return getRestrictedListOfFilms(GET_FILM, id).get(id);
+        Film film = filmCache.get(id);
+        if (film != null) {
+            return film;
+        }
+        long version = filmCache.version(id);
+        film = getRestrictedListOfFilms(GET_FILM, id).get(id);
+        if (film != null) {
+            filmCache.put(film, version);
+        }
+        return film;
     }
 
     @Override
     public List<Film> getFilms() {
-        return new ArrayList<>(getRestrictedListOfFilms(GET_FILMS, 0).values());
+        return new ArrayList<>(getRestrictedListOfFilms(GET_FILMS).values());
+    }
+
+    @Override
+    public List<Film> getFilms(long afterId, int limit) {
+        return new ArrayList<>(getRestrictedListOfFilms(GET_FILMS_PAGE, afterId, limit).values());
+    }
+
+    @Override
+    public List<Map<String, Object>> getFilmFields(long afterId, int limit, Set<FilmField> fields) {
+        return new ArrayList<>(getFilmFields(fields, projection(GET_FILM_FIELDS_PAGE, fields), afterId, limit).values());
     }
 
     @Override
+    public void streamFilms(Consumer<Film> consumer) {
+        long afterId = 0;
+        List<Film> page;
+        do {
+            page = getFilms(afterId, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    @Transactional
     public Film create(Film film) {
-        film.setId(saveFilm(film));
-        long filmId = film.getId();
-        Mpa mpa = film.getMpa();
-        updateFilmMpa(mpa.getId(), filmId);
-        Set<Genre> genres = film.getGenres();
-        if (!genres.isEmpty()) {
-            updateFilmGenres(removeDoubles(genres), filmId);
-        }
-        return getFilm(filmId);
+        saveFilms(List.of(film));
+        return fillDictionaries(film);
+    }
+
+    @Override
+    @Transactional
+    public List<Long> createAll(List<Film> films) {
+        return saveFilms(films);
     }
 
+    // Both like methods update the film row first: it serializes likes of one film, so an insert never runs into
+    // an uncommitted delete of the same row, which H2 retries until the lock timeout. The same lock orders their
+    // after-commit callbacks
     @Override
+    @Transactional
     public void addLike(long filmId, long userId) {
-        jdbcTemplate.update(INSERT_LIKE, filmId, userId);
+        CommitOrder.Change change = lockLikesCount(filmId, userId, 1);
+        LocalDateTime createdAt = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(MERGE_LIKE, new String[]{"like_id"});
+                ps.setLong(1, filmId);
+                ps.setLong(2, userId);
+                ps.setObject(3, createdAt);
+                return ps;
+            }, keyHolder);
+        } catch (DataIntegrityViolationException e) {
+            throw new ItemDoesNotExistException("Film with id=" + filmId + " or user with id=" + userId +
+                    " not exist. ");
+        }
+        if (inserted == 0) {
+            jdbcTemplate.update(UPDATE_LIKES_COUNT, -1, filmId);
+            return;
+        }
+        FeedEvent event = FeedEvent.builder()
+                .id(keyHolder.getKey().longValue())
+                .userId(userId)
+                .filmId(filmId)
+                .createdAt(createdAt)
+                .build();
+        change.onCommit(() -> {
+            popularFilmsRanking.changeLikes(filmId, 1);
+            likesMatrix.addLike(filmId, userId);
+            activityFeed.addLike(event);
+        });
     }
 
     @Override
+    @Transactional
     public void deleteLike(long filmId, long userId) {
-        jdbcTemplate.update(DELETE_LIKE, filmId, userId);
+        CommitOrder.Change change = lockLikesCount(filmId, userId, -1);
+        if (jdbcTemplate.update(DELETE_LIKE, filmId, userId) == 0) {
+            jdbcTemplate.update(UPDATE_LIKES_COUNT, 1, filmId);
+            if (jdbcTemplate.queryForObject(COUNT_FILM_AND_USER, Integer.class, filmId, userId) < 2) {
+                throw new ItemDoesNotExistException("Film with id=" + filmId + " or user with id=" + userId +
+                        " not exist. ");
+            }
+            return;
+        }
+        change.onCommit(() -> {
+            popularFilmsRanking.changeLikes(filmId, -1);
+            likesMatrix.deleteLike(filmId, userId);
+            activityFeed.deleteLike(filmId, userId);
+        });
+    }
+
+    @Override
+    @Transactional
+    public void recountLikes() {
+        jdbcTemplate.update(RECOUNT_LIKES);
+        AfterCommit.run(popularFilmsRanking::load);
     }
 
     @Override
     public List<Film> getTheMostPopularFilms(int count) {
-        return new LinkedList<>(getRestrictedListOfFilms(GET_BEST_FILMS, count).values());
+        if (count > popularFilmsRanking.getMaxCount()) {
+            return new LinkedList<>(getRestrictedListOfFilms(GET_BEST_FILMS, count).values());
+        }
+        return new LinkedList<>(getOrderedFilms(popularFilmsRanking.getTopFilmIds(count)));
+    }
+
+    @Override
+    public List<Film> getTheMostPopularFilms(int count, Long genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return getTheMostPopularFilms(count);
+        }
+        return new LinkedList<>(getOrderedFilms(getBestFilmIds(count, genreId, year)));
+    }
+
+    // Cached films are projected in memory, the rest is read with the projected query
+    @Override
+    public List<Map<String, Object>> getPopularFilmFields(int count, Long genreId, Integer year,
+                                                          Set<FilmField> fields) {
+        List<Long> filmIds = getBestFilmIds(count, genreId, year);
+        Map<Long, Map<String, Object>> films = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long filmId : filmIds) {
+            Film film = filmCache.get(filmId);
+            if (film != null) {
+                Map<String, Object> projected = new LinkedHashMap<>();
+                fields.forEach(field -> projected.put(field.getKey(), readField(film, field)));
+                films.put(filmId, projected);
+            } else {
+                missingIds.add(filmId);
+            }
+        }
+        String sql = projection(GET_FILM_FIELDS_BY_IDS, fields);
+        for (int from = 0; from < missingIds.size(); from += IN_BATCH_SIZE) {
+            List<Long> batch = missingIds.subList(from, Math.min(from + IN_BATCH_SIZE, missingIds.size()));
+            films.putAll(getFilmFields(fields, inClause(sql, batch.size()), batch.toArray()));
+        }
+        return filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getRecommendations(long userId, int count) {
+        return getOrderedFilms(likesMatrix.recommend(userId, count));
+    }
+
+    @Override
+    public List<FeedEvent> getLikeEvents(long[] userIds, long beforeId, int count) {
+        return activityFeed.getFeed(userIds, beforeId, count);
     }
 
     @Override
+    public List<Film> searchFilms(String query, int count) {
+        return getOrderedFilms(filmSearchIndex.search(query, count));
+    }
+
+    @Override
+    @Transactional
     public Film update(Film film) {
         long filmId = film.getId();
-        jdbcTemplate.update(UPDATE_FILM, film.getName(), film.getReleaseDate(),
-                film.getDescription(), film.getDuration(), film.getRate(), filmId);
-        Film filmBefore = getFilm(filmId);
-        Mpa mpaBefore = filmBefore.getMpa();
-        Mpa mpaAfter = film.getMpa();
-        if (!Objects.equals(mpaAfter.getId(), mpaBefore.getId())) {
-            deleteFilmMpa(mpaBefore, filmId);
-            updateFilmMpa(mpaAfter.getId(), filmId);
-        }
-        Set<Genre> genresBefore = filmBefore.getGenres();
+        List<String[]> before = jdbcTemplate.query(UPDATE_FILM,
+                (rs, rowNum) -> new String[]{rs.getString("film_name"), rs.getString("description")},
+                film.getName(), film.getReleaseDate(), film.getDescription(), film.getDuration(), film.getRate(),
+                filmId);
+        if (before.isEmpty()) {
+            throw new ItemDoesNotExistException("Film with id=" + filmId + " not exist. ");
+        }
+        CommitOrder.Change change = filmChanges.change(filmId);
+        long mpaId = film.getMpa().getId();
+        jdbcTemplate.update(UPDATE_FILM_MPA, mpaId, filmId, mpaId);
+        Set<Long> genresBefore = new HashSet<>(jdbcTemplate.queryForList(GET_FILM_GENRE_IDS, Long.class, filmId));
         Set<Long> genresAfter = removeDoubles(film.getGenres());
-        if (!genresBefore.isEmpty()) {
-            deleteFilmGenres(genresBefore, filmId);
+        Set<Long> removedGenres = new HashSet<>(genresBefore);
+        removedGenres.removeAll(genresAfter);
+        Set<Long> addedGenres = new HashSet<>(genresAfter);
+        addedGenres.removeAll(genresBefore);
+        if (!removedGenres.isEmpty()) {
+            deleteFilmGenres(removedGenres, filmId);
         }
-        if (!genresAfter.isEmpty()) {
-            updateFilmGenres(genresAfter, filmId);
+        if (!addedGenres.isEmpty()) {
+            updateFilmGenres(addedGenres, filmId);
         }
-        return getFilm(filmId);
+        String[] text = before.get(0);
+        change.onCommit(() -> {
+            filmCache.invalidate(filmId);
+            filmSearchIndex.updateFilm(filmId, text[0], text[1], film.getName(), film.getDescription());
+        });
+        return fillDictionaries(film);
     }
 
     @Override
     public boolean containsFilm(long filmId) {
-        return jdbcTemplate.queryForRowSet(GET_FILM_ID, filmId).next();
+        return Boolean.TRUE.equals(jdbcTemplate.query(GET_FILM_ID, (ResultSetExtractor<Boolean>) ResultSet::next,
+                filmId));
     }
 
-    private long saveFilm(Film film) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("film_id");
-        return simpleJdbcInsert.executeAndReturnKey(film.toMap()).longValue();
+    private List<Long> saveFilms(List<Film> films) {
+        List<Long> filmIds = jdbcTemplate.execute(
+                (Connection connection) -> connection.prepareStatement(INSERT_FILM, new String[]{"film_id"}),
+                (PreparedStatement ps) -> {
+                    for (Film film : films) {
+                        ps.setString(1, film.getName());
+                        ps.setObject(2, film.getReleaseDate());
+                        ps.setString(3, film.getDescription());
+                        ps.setLong(4, film.getDuration());
+                        ps.setInt(5, film.getRate());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    List<Long> ids = new ArrayList<>(films.size());
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            ids.add(keys.getLong(1));
+                        }
+                    }
+                    return ids;
+                });
+        List<long[]> filmGenres = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(filmIds.get(i));
+            removeDoubles(film.getGenres()).forEach(genreId -> filmGenres.add(new long[]{film.getId(), genreId}));
+        }
+        jdbcTemplate.batchUpdate(INSERT_FILM_MPA, films, films.size(), (ps, film) -> {
+            ps.setLong(1, film.getId());
+            ps.setLong(2, film.getMpa().getId());
+        });
+        if (!filmGenres.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_FILM_GENRE, filmGenres, filmGenres.size(), (ps, filmGenre) -> {
+                ps.setLong(1, filmGenre[0]);
+                ps.setLong(2, filmGenre[1]);
+            });
+        }
+        films.forEach(film -> filmChanges.change(film.getId()).onCommit(() -> {
+            popularFilmsRanking.addFilm(film.getId());
+            filmSearchIndex.addFilm(film.getId(), film.getName(), film.getDescription());
+        }));
+        return filmIds;
     }
 
-    private Map<Long, Film> getRestrictedListOfFilms(String sql, long id) {
-        Map<Long, Film> films = new LinkedHashMap<>();
-        SqlRowSet rs;
-        if (id == 0) {
-            rs = jdbcTemplate.queryForRowSet(sql);
-        } else {
-            rs = jdbcTemplate.queryForRowSet(sql, id);
+    private Film fillDictionaries(Film film) {
+        film.setMpa(mpaStorage.getMpa(film.getMpa().getId()));
+        Set<Genre> genres = new LinkedHashSet<>();
+        new TreeSet<>(removeDoubles(film.getGenres())).forEach(genreId -> genres.add(genreStorage.getGenre(genreId)));
+        film.setGenres(genres);
+        return film;
+    }
+
+    private CommitOrder.Change lockLikesCount(long filmId, long userId, int delta) {
+        if (jdbcTemplate.update(UPDATE_LIKES_COUNT, delta, filmId) == 0) {
+            throw new ItemDoesNotExistException("Film with id=" + filmId + " or user with id=" + userId +
+                    " not exist. ");
+        }
+        return filmChanges.change(filmId);
+    }
+
+    private List<Long> getBestFilmIds(int count, Long genreId, Integer year) {
+        if (genreId != null && year != null) {
+            return jdbcTemplate.queryForList(GET_BEST_FILM_IDS_BY_GENRE_AND_YEAR, Long.class, year, genreId, count);
+        }
+        if (genreId != null) {
+            String sql = isSparseGenre(genreId) ? GET_BEST_FILM_IDS_OF_SPARSE_GENRE : GET_BEST_FILM_IDS_BY_GENRE;
+            return jdbcTemplate.queryForList(sql, Long.class, genreId, count);
+        }
+        if (year != null) {
+            return jdbcTemplate.queryForList(GET_BEST_FILM_IDS_BY_YEAR, Long.class, year, count);
         }
-        while (rs.next()) {
+        if (count > popularFilmsRanking.getMaxCount()) {
+            return jdbcTemplate.queryForList(GET_BEST_FILM_IDS, Long.class, count);
+        }
+        return popularFilmsRanking.getTopFilmIds(count);
+    }
+
+    // Counting stops at sparseGenreFilms, so the probe reads at most that many index entries. A denser genre holds at
+    // least that share of all films, which bounds the rows the likes_count index walk passes per film found
+    private boolean isSparseGenre(long genreId) {
+        return jdbcTemplate.queryForObject(COUNT_GENRE_FILMS_UP_TO, Integer.class, genreId, sparseGenreFilms)
+                < sparseGenreFilms;
+    }
+
+    private String projection(String sql, Set<FilmField> fields) {
+        StringJoiner columns = new StringJoiner(", ").add("F.FILM_ID");
+        for (FilmField field : fields) {
+            switch (field) {
+                case NAME:
+                    columns.add("F.FILM_NAME");
+                    break;
+                case DESCRIPTION:
+                    columns.add("F.DESCRIPTION");
+                    break;
+                case RELEASE_DATE:
+                    columns.add("F.RELEASE_DATE");
+                    break;
+                case DURATION:
+                    columns.add("F.DURATION");
+                    break;
+                case RATE:
+                    columns.add("F.RATE");
+                    break;
+                case MPA:
+                    columns.add("M.MPA_ID").add("MP.MPA_NAME");
+                    break;
+                default:
+                    break;
+            }
+        }
+        return String.format(sql, columns, fields.contains(FilmField.MPA) ? JOIN_MPA : "");
+    }
+
+    private Map<Long, Map<String, Object>> getFilmFields(Set<FilmField> fields, String sql, Object... args) {
+        Map<Long, Map<String, Object>> films = new LinkedHashMap<>();
+        Map<Long, Set<Genre>> genres = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
             long filmId = rs.getLong("film_id");
-            Film film = Film.builder()
-                    .id(filmId)
-                    .name(rs.getString("film_name"))
-                    .releaseDate(rs.getDate("release_date").toLocalDate())
-                    .description(rs.getString("description"))
-                    .duration(rs.getLong("duration"))
-                    .rate(rs.getInt("rate"))
-                    .build();
-            Mpa mpa = Mpa.builder()
-                    .id(rs.getLong("mpa_id"))
-                    .name(rs.getString("mpa_name"))
-                    .build();
-            film.setMpa(mpa);
-            Set<Genre> genres = new LinkedHashSet<>();
-
-            SqlRowSet rsGenres = jdbcTemplate.queryForRowSet(GET_FILM_GENRES, filmId);
-            while (rsGenres.next()) {
-                Genre genre = Genre.builder()
-                        .id(rsGenres.getLong("genre_id"))
-                        .name(rsGenres.getString("genre_name"))
-                        .build();
-                genres.add(genre);
+            Map<String, Object> film = new LinkedHashMap<>();
+            for (FilmField field : fields) {
+                if (field == FilmField.GENRES) {
+                    Set<Genre> filmGenres = new LinkedHashSet<>();
+                    genres.put(filmId, filmGenres);
+                    film.put(field.getKey(), filmGenres);
+                } else if (field == FilmField.LIKES) {
+                    // Likes are read from the ranking, as for cached films, so a response has one source of counts
+                    film.put(field.getKey(), popularFilmsRanking.getLikes(filmId));
+                } else {
+                    film.put(field.getKey(), readField(rs, field));
+                }
             }
-            film.setGenres(genres);
             films.put(filmId, film);
+        }, args);
+        loadGenres(genres);
+        return films;
+    }
+
+    private static Object readField(ResultSet rs, FilmField field) throws SQLException {
+        switch (field) {
+            case ID:
+                return rs.getLong("film_id");
+            case NAME:
+                return rs.getString("film_name");
+            case DESCRIPTION:
+                return rs.getString("description");
+            case RELEASE_DATE:
+                return rs.getDate("release_date").toLocalDate();
+            case DURATION:
+                return rs.getLong("duration");
+            case RATE:
+                return rs.getInt("rate");
+            case MPA:
+                return Mpa.builder()
+                        .id(rs.getLong("mpa_id"))
+                        .name(rs.getString("mpa_name"))
+                        .build();
+            default:
+                throw new IllegalArgumentException("Field " + field + " is not a column");
+        }
+    }
+
+    private Object readField(Film film, FilmField field) {
+        switch (field) {
+            case ID:
+                return film.getId();
+            case NAME:
+                return film.getName();
+            case DESCRIPTION:
+                return film.getDescription();
+            case RELEASE_DATE:
+                return film.getReleaseDate();
+            case DURATION:
+                return film.getDuration();
+            case RATE:
+                return film.getRate();
+            case LIKES:
+                return popularFilmsRanking.getLikes(film.getId());
+            case MPA:
+                return film.getMpa();
+            default:
+                return film.getGenres();
         }
+    }
+
+    // Rows of one film are adjacent, so the result is read forward once without keeping it
+    private Map<Long, Film> getRestrictedListOfFilms(String sql, Object... args) {
+        Map<Long, Film> films = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, new RowCallbackHandler() {
+            private Film film;
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                long filmId = rs.getLong("film_id");
+                if (film == null || film.getId() != filmId) {
+                    film = Film.builder()
+                            .id(filmId)
+                            .name(rs.getString("film_name"))
+                            .releaseDate(rs.getDate("release_date").toLocalDate())
+                            .description(rs.getString("description"))
+                            .duration(rs.getLong("duration"))
+                            .rate(rs.getInt("rate"))
+                            .mpa(Mpa.builder()
+                                    .id(rs.getLong("mpa_id"))
+                                    .name(rs.getString("mpa_name"))
+                                    .build())
+                            .genres(new LinkedHashSet<>())
+                            .build();
+                    films.put(filmId, film);
+                }
+                long genreId = rs.getLong("genre_id");
+                if (!rs.wasNull()) {
+                    film.getGenres().add(Genre.builder()
+                            .id(genreId)
+                            .name(rs.getString("genre_name"))
+                            .build());
+                }
+            }
+        }, args);
         return films;
     }
 
-    private Set<Long> removeDoubles(Set<Genre> genres) {
-        return genres.stream().map(Genre::getId).collect(Collectors.toSet());
+    private List<Film> getOrderedFilms(List<Long> filmIds) {
+        Map<Long, Film> films = getFilmsByIds(filmIds);
+        return filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
-    private boolean updateFilmMpa(long mpaId, long filmId) {
-        return jdbcTemplate.update(INSERT_FILM_MPA, filmId, mpaId) > 0;
+    private Map<Long, Film> getFilmsByIds(List<Long> filmIds) {
+        Map<Long, Film> films = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long filmId : filmIds) {
+            Film film = filmCache.get(filmId);
+            if (film != null) {
+                films.put(filmId, film);
+            } else {
+                missingIds.add(filmId);
+            }
+        }
+        for (int from = 0; from < missingIds.size(); from += IN_BATCH_SIZE) {
+            List<Long> batch = missingIds.subList(from, Math.min(from + IN_BATCH_SIZE, missingIds.size()));
+            long[] versions = batch.stream().mapToLong(filmCache::version).toArray();
+            Map<Long, Film> loaded = getRestrictedListOfFilms(inClause(GET_FILMS_BY_IDS, batch.size()),
+                    batch.toArray());
+            for (int i = 0; i < batch.size(); i++) {
+                Film film = loaded.get(batch.get(i));
+                if (film != null) {
+                    filmCache.put(film, versions[i]);
+                }
+            }
+            films.putAll(loaded);
+        }
+        return films;
     }
 
-    private void updateFilmGenres(Set<Long> genreIds, long filmId) {
-        genreIds.forEach(g -> jdbcTemplate.update(INSERT_FILM_GENRE, filmId, g));
+    private void loadGenres(Map<Long, Set<Genre>> genres) {
+        List<Long> filmIds = new ArrayList<>(genres.keySet());
+        for (int from = 0; from < filmIds.size(); from += IN_BATCH_SIZE) {
+            List<Long> batch = filmIds.subList(from, Math.min(from + IN_BATCH_SIZE, filmIds.size()));
+            jdbcTemplate.query(inClause(GET_FILMS_GENRES, batch.size()), (RowCallbackHandler) rs -> {
+                Genre genre = Genre.builder()
+                        .id(rs.getLong("genre_id"))
+                        .name(rs.getString("genre_name"))
+                        .build();
+                genres.get(rs.getLong("film_id")).add(genre);
+            }, batch.toArray());
+        }
+    }
+
+    private String inClause(String sql, int size) {
+        return String.format(sql, String.join(",", Collections.nCopies(size, "?")));
     }
 
-    private boolean deleteFilmMpa(Mpa mpa, long filmId) {
-        return jdbcTemplate.update(DELETE_FILM_MPA, filmId, mpa.getId()) > 0;
+    private Set<Long> removeDoubles(Set<Genre> genres) {
+        if (Objects.isNull(genres)) {
+            return Set.of();
+        }
+        return genres.stream().map(Genre::getId).collect(Collectors.toSet());
+    }
+
+    private void updateFilmGenres(Set<Long> genreIds, long filmId) {
+        jdbcTemplate.batchUpdate(INSERT_FILM_GENRE, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setLong(1, filmId);
+            ps.setLong(2, genreId);
+        });
     }
 
-    private void deleteFilmGenres(Set<Genre> genres, long filmId) {
-        genres.forEach(genre -> jdbcTemplate.update(DELETE_FILM_GENRE, filmId, genre.getId()));
+    private void deleteFilmGenres(Set<Long> genreIds, long filmId) {
+        jdbcTemplate.batchUpdate(DELETE_FILM_GENRE, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setLong(1, filmId);
+            ps.setLong(2, genreId);
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,307 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+public class FilmSearchIndex {
+
+    private static final String GET_FILMS_TEXT = "SELECT film_id, film_name, description FROM films ORDER BY film_id";
+
+    private static final int MAX_QUERY_TOKENS = 10;
+
+    // Above this size the last score bucket is ordered by walking the popularity ranking instead of sorting it
+    private static final int MAX_SORTED_BUCKET = 4096;
+
+    private static final int END = Integer.MAX_VALUE;
+
+    private static final int NAME_SCORE = 2;
+    private static final int DESCRIPTION_SCORE = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PopularFilmsRanking popularFilmsRanking;
+    private final Map<String, Postings> postings = new ConcurrentHashMap<>();
+
+    public FilmSearchIndex(JdbcTemplate jdbcTemplate, PopularFilmsRanking popularFilmsRanking) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.popularFilmsRanking = popularFilmsRanking;
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<String, IntArray> tokens = new HashMap<>();
+        jdbcTemplate.query(GET_FILMS_TEXT, (RowCallbackHandler) rs -> {
+            int filmId = rs.getInt("film_id");
+            // Rows come ordered by id, so every posting list is appended in ascending order
+            entries(filmId, rs.getString("film_name"), rs.getString("description"))
+                    .forEach((token, entry) -> tokens.computeIfAbsent(token, t -> new IntArray()).add(entry));
+        });
+        postings.clear();
+        tokens.forEach((token, entries) -> postings.put(token, entries.toPostings()));
+        log.info("Film search index loaded with {} tokens", postings.size());
+    }
+
+    public void addFilm(long filmId, String name, String description) {
+        entries(Math.toIntExact(filmId), name, description)
+                .forEach((token, entry) -> postings.compute(token, (t, values) -> insert(values, entry)));
+    }
+
+    public void updateFilm(long filmId, String oldName, String oldDescription, String name, String description) {
+        int id = Math.toIntExact(filmId);
+        Map<String, Integer> before = entries(id, oldName, oldDescription);
+        Map<String, Integer> after = entries(id, name, description);
+        before.forEach((token, entry) -> {
+            if (!entry.equals(after.get(token))) {
+                postings.computeIfPresent(token, (t, values) -> remove(values, entry));
+            }
+        });
+        after.forEach((token, entry) -> {
+            if (!entry.equals(before.get(token))) {
+                postings.compute(token, (t, values) -> insert(values, entry));
+            }
+        });
+    }
+
+    public List<Long> search(String query, int count) {
+        List<Postings> lists = new ArrayList<>();
+        for (String token : queryTokens(query)) {
+            Postings values = postings.get(token);
+            if (values != null) {
+                lists.add(values);
+            }
+        }
+        if (lists.isEmpty() || count <= 0) {
+            return List.of();
+        }
+        Postings[] matches = lists.toArray(Postings[]::new);
+        int[] histogram = new int[matches.length * NAME_SCORE + 1];
+        merge(matches, (filmId, score) -> histogram[score]++);
+        int threshold = histogram.length - 1;
+        int above = 0;
+        while (threshold > 1 && above + histogram[threshold] < count) {
+            above += histogram[threshold--];
+        }
+        int minScore = threshold;
+        List<Match> result = new ArrayList<>();
+        IntArray bucket = new IntArray();
+        boolean sortBucket = histogram[minScore] <= MAX_SORTED_BUCKET;
+        if (sortBucket || above > 0) {
+            merge(matches, (filmId, score) -> {
+                if (score > minScore) {
+                    result.add(new Match(filmId, score, popularFilmsRanking.getLikes(filmId)));
+                } else if (score == minScore && sortBucket) {
+                    bucket.add(filmId);
+                }
+            });
+        }
+        result.sort(Match.BEST_FIRST);
+        int need = count - result.size();
+        if (sortBucket) {
+            List<Match> tied = new ArrayList<>(bucket.size);
+            for (int i = 0; i < bucket.size; i++) {
+                tied.add(new Match(bucket.values[i], minScore, popularFilmsRanking.getLikes(bucket.values[i])));
+            }
+            tied.sort(Match.BEST_FIRST);
+            result.addAll(tied.subList(0, Math.min(need, tied.size())));
+        } else {
+            popularFilmsRanking.getTopFilmIds(need, filmId -> score(matches, filmId) == minScore)
+                    .forEach(filmId -> result.add(new Match(Math.toIntExact(filmId), minScore, 0)));
+        }
+        List<Long> filmIds = new ArrayList<>(result.size());
+        result.forEach(match -> filmIds.add((long) match.filmId));
+        return filmIds;
+    }
+
+    public int size() {
+        return postings.size();
+    }
+
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c == 'ё' || c == 'Ё' ? 'е' : c);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString().toLowerCase(Locale.ROOT));
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> queryTokens(String query) {
+        Set<String> tokens = new LinkedHashSet<>(tokens(query));
+        return tokens.size() <= MAX_QUERY_TOKENS ? tokens
+                : new LinkedHashSet<>(new ArrayList<>(tokens).subList(0, MAX_QUERY_TOKENS));
+    }
+
+    // Entry is film id shifted left by one, the low bit marks a token found in the name
+    private static Map<String, Integer> entries(int filmId, String name, String description) {
+        Map<String, Integer> entries = new HashMap<>();
+        tokens(description).forEach(token -> entries.put(token, filmId << 1));
+        tokens(name).forEach(token -> entries.put(token, filmId << 1 | 1));
+        return entries;
+    }
+
+    private static int scoreOf(int entry) {
+        return (entry & 1) == 1 ? NAME_SCORE : DESCRIPTION_SCORE;
+    }
+
+    private static int score(Postings[] matches, long filmId) {
+        int entry = Math.toIntExact(filmId) << 1;
+        int score = 0;
+        for (Postings values : matches) {
+            int position = Arrays.binarySearch(values.values, 0, values.size, entry);
+            if (position >= 0) {
+                score += DESCRIPTION_SCORE;
+            } else if (-position - 1 < values.size && values.values[-position - 1] == (entry | 1)) {
+                score += NAME_SCORE;
+            }
+        }
+        return score;
+    }
+
+    // Walks the sorted posting lists together and reports every film with the sum of its token scores
+    private static void merge(Postings[] matches, MatchConsumer consumer) {
+        if (matches.length == 1) {
+            int[] values = matches[0].values;
+            for (int i = 0; i < matches[0].size; i++) {
+                consumer.accept(values[i] >>> 1, scoreOf(values[i]));
+            }
+            return;
+        }
+        int[] positions = new int[matches.length];
+        int[] heads = new int[matches.length];
+        for (int i = 0; i < matches.length; i++) {
+            heads[i] = matches[i].values[0];
+        }
+        while (true) {
+            int min = END;
+            for (int head : heads) {
+                min = Math.min(min, head);
+            }
+            if (min == END) {
+                return;
+            }
+            int filmId = min >>> 1;
+            int score = 0;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] >>> 1 == filmId) {
+                    score += scoreOf(heads[i]);
+                    int position = ++positions[i];
+                    heads[i] = position < matches[i].size ? matches[i].values[position] : END;
+                }
+            }
+            consumer.accept(filmId, score);
+        }
+    }
+
+    // Appending past the end reuses the spare capacity, older snapshots never read beyond their own size
+    private static Postings insert(Postings postings, int entry) {
+        if (postings == null) {
+            int[] values = new int[4];
+            values[0] = entry;
+            return new Postings(values, 1);
+        }
+        int[] values = postings.values;
+        int size = postings.size;
+        if (values[size - 1] < entry) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = entry;
+            return new Postings(values, size + 1);
+        }
+        int position = Arrays.binarySearch(values, 0, size, entry);
+        if (position >= 0) {
+            return postings;
+        }
+        position = -position - 1;
+        int[] result = new int[Math.max(size + 1, values.length)];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = entry;
+        System.arraycopy(values, position, result, position + 1, size - position);
+        return new Postings(result, size + 1);
+    }
+
+    private static Postings remove(Postings postings, int entry) {
+        int position = Arrays.binarySearch(postings.values, 0, postings.size, entry);
+        if (position < 0) {
+            return postings;
+        }
+        if (postings.size == 1) {
+            return null;
+        }
+        int[] result = new int[postings.size - 1];
+        System.arraycopy(postings.values, 0, result, 0, position);
+        System.arraycopy(postings.values, position + 1, result, position, postings.size - position - 1);
+        return new Postings(result, result.length);
+    }
+
+    @FunctionalInterface
+    private interface MatchConsumer {
+        void accept(int filmId, int score);
+    }
+
+    private static final class Postings {
+        private final int[] values;
+        private final int size;
+
+        private Postings(int[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+    }
+
+    private static final class Match {
+        private static final Comparator<Match> BEST_FIRST = Comparator.comparingInt((Match m) -> -m.score)
+                .thenComparingLong(m -> -m.likes)
+                .thenComparingInt(m -> m.filmId);
+
+        private final int filmId;
+        private final int score;
+        private final long likes;
+
+        private Match(int filmId, int score, long likes) {
+            this.filmId = filmId;
+            this.score = score;
+            this.likes = likes;
+        }
+    }
+
+    private static final class IntArray {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private Postings toPostings() {
+            return new Postings(Arrays.copyOf(values, size), size);
+        }
+    }
+}
@@ -1,24 +1,49 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.FeedEvent;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
     Film create(Film film);
 
+    List<Long> createAll(List<Film> films);
+
     Film update(Film film);
 
     List<Film> getFilms();
 
+    List<Film> getFilms(long afterId, int limit);
+
+    List<Map<String, Object>> getFilmFields(long afterId, int limit, Set<FilmField> fields);
+
+    void streamFilms(Consumer<Film> consumer);
+
     List<Film> getTheMostPopularFilms(int count);
 
+    List<Film> getTheMostPopularFilms(int count, Long genreId, Integer year);
+
+    List<Map<String, Object>> getPopularFilmFields(int count, Long genreId, Integer year, Set<FilmField> fields);
+
+    List<Film> getRecommendations(long userId, int count);
+
+    List<Film> searchFilms(String query, int count);
+
+    List<FeedEvent> getLikeEvents(long[] userIds, long beforeId, int count);
+
     Film getFilm(long id);
 
     void addLike(long filmId, long userId);
 
     void deleteLike(long filmId, long userId);
 
+    void recountLikes();
+
     boolean containsFilm(long id);
 }
\ No newline at end of file
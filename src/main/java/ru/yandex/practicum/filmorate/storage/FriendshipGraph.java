@@ -0,0 +1,235 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+public class FriendshipGraph {
+
+    private static final String GET_FRIENDS = "SELECT user_id, friend_id, approval FROM friends " +
+            "ORDER BY user_id, friend_id";
+
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private static final long MAX_ID = 0xFFFFFFFFL;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxVisited;
+    private final Map<Long, long[]> friends = new ConcurrentHashMap<>();
+    // Friends who accepted the request, kept for both users of a confirmed pair
+    private final Map<Long, long[]> confirmedFriends = new ConcurrentHashMap<>();
+
+    public FriendshipGraph(JdbcTemplate jdbcTemplate,
+                           @Value("${filmorate.friends.graph-enabled:true}") boolean enabled,
+                           @Value("${filmorate.friends.suggestions.max-visited:100000}") int maxVisited) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxVisited = maxVisited;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        Adjacency all = new Adjacency();
+        Adjacency confirmed = new Adjacency();
+        jdbcTemplate.query(GET_FRIENDS, (RowCallbackHandler) rs -> {
+            long userId = rs.getLong("user_id");
+            long friendId = rs.getLong("friend_id");
+            all.add(userId, friendId);
+            if (rs.getBoolean("approval")) {
+                confirmed.add(userId, friendId);
+            }
+        });
+        friends.clear();
+        friends.putAll(all.finish());
+        confirmedFriends.clear();
+        confirmedFriends.putAll(confirmed.finish());
+        log.info("Friendship graph loaded for {} users", friends.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addFriend(long userId, long friendId, boolean confirmed) {
+        if (enabled) {
+            friends.compute(userId, (id, userFriends) -> insert(userFriends, friendId));
+            if (confirmed) {
+                confirmedFriends.compute(userId, (id, userFriends) -> insert(userFriends, friendId));
+                confirmedFriends.compute(friendId, (id, userFriends) -> insert(userFriends, userId));
+            }
+        }
+    }
+
+    public void deleteFriend(long userId, long friendId) {
+        if (enabled) {
+            friends.computeIfPresent(userId, (id, userFriends) -> remove(userFriends, friendId));
+            confirmedFriends.computeIfPresent(userId, (id, userFriends) -> remove(userFriends, friendId));
+            confirmedFriends.computeIfPresent(friendId, (id, userFriends) -> remove(userFriends, userId));
+        }
+    }
+
+    public long[] getFriends(long userId) {
+        return friends.getOrDefault(userId, NO_FRIENDS);
+    }
+
+    public long[] getFriends(long userId, boolean confirmed) {
+        return (confirmed ? confirmedFriends : friends).getOrDefault(userId, NO_FRIENDS);
+    }
+
+    public long[] getCommonFriends(long userId, long otherUserId, boolean confirmed) {
+        long[] first = getFriends(userId, confirmed);
+        long[] second = getFriends(otherUserId, confirmed);
+        long[] common = new long[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    // Friends of friends ranked by the number of mutual friends, then by id. Friends are visited from the least
+    // connected one until maxVisited friend-of-friend links are collected: a hub adds many candidates with one
+    // mutual friend each, so it is the first to be left out
+    public long[] suggestFriends(long userId, int count) {
+        long[] userFriends = getFriends(userId);
+        long[][] friendsOfFriends = new long[userFriends.length][];
+        long[] byDegree = new long[userFriends.length];
+        for (int i = 0; i < userFriends.length; i++) {
+            friendsOfFriends[i] = getFriends(userFriends[i]);
+            byDegree[i] = (long) friendsOfFriends[i].length << 32 | i;
+        }
+        Arrays.sort(byDegree);
+        int visited = 0;
+        int taken = 0;
+        while (taken < byDegree.length && visited + (byDegree[taken] >>> 32) <= maxVisited) {
+            visited += byDegree[taken++] >>> 32;
+        }
+        long[] candidates = new long[visited];
+        int size = 0;
+        for (int i = 0; i < taken; i++) {
+            long[] next = friendsOfFriends[(int) byDegree[i]];
+            System.arraycopy(next, 0, candidates, size, next.length);
+            size += next.length;
+        }
+        // Sorting on the common fork/join pool brings every candidate's links together, the run length is the score
+        Arrays.parallelSort(candidates);
+        PriorityQueue<Long> top = new PriorityQueue<>();
+        int friend = 0;
+        int start = 0;
+        while (start < size) {
+            long candidate = candidates[start];
+            int end = start + 1;
+            while (end < size && candidates[end] == candidate) {
+                end++;
+            }
+            while (friend < userFriends.length && userFriends[friend] < candidate) {
+                friend++;
+            }
+            boolean known = candidate == userId || friend < userFriends.length && userFriends[friend] == candidate;
+            if (!known) {
+                long key = (long) (end - start) << 32 | (MAX_ID - candidate);
+                if (top.size() < count) {
+                    top.add(key);
+                } else if (top.peek() < key) {
+                    top.poll();
+                    top.add(key);
+                }
+            }
+            start = end;
+        }
+        long[] suggestions = new long[top.size()];
+        for (int i = suggestions.length - 1; i >= 0; i--) {
+            suggestions[i] = MAX_ID - (top.poll() & MAX_ID);
+        }
+        return suggestions;
+    }
+
+    private static long[] insert(long[] userFriends, long friendId) {
+        if (userFriends == null) {
+            return new long[]{friendId};
+        }
+        int position = Arrays.binarySearch(userFriends, friendId);
+        if (position >= 0) {
+            return userFriends;
+        }
+        position = -position - 1;
+        long[] result = new long[userFriends.length + 1];
+        System.arraycopy(userFriends, 0, result, 0, position);
+        result[position] = friendId;
+        System.arraycopy(userFriends, position, result, position + 1, userFriends.length - position);
+        return result;
+    }
+
+    private static long[] remove(long[] userFriends, long friendId) {
+        int position = Arrays.binarySearch(userFriends, friendId);
+        if (position < 0) {
+            return userFriends;
+        }
+        if (userFriends.length == 1) {
+            return null;
+        }
+        long[] result = new long[userFriends.length - 1];
+        System.arraycopy(userFriends, 0, result, 0, position);
+        System.arraycopy(userFriends, position + 1, result, position, userFriends.length - position - 1);
+        return result;
+    }
+
+    // Collects rows ordered by user and friend into sorted arrays without duplicates
+    private static final class Adjacency {
+        private final Map<Long, long[]> adjacency = new HashMap<>();
+        private long userId;
+        private long[] buffer = new long[16];
+        private int size;
+
+        private void add(long nextUserId, long friendId) {
+            if (nextUserId != userId) {
+                finishUser();
+                userId = nextUserId;
+            }
+            if (size > 0 && buffer[size - 1] == friendId) {
+                return;
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = friendId;
+        }
+
+        private Map<Long, long[]> finish() {
+            finishUser();
+            return adjacency;
+        }
+
+        private void finishUser() {
+            if (size > 0) {
+                adjacency.put(userId, Arrays.copyOf(buffer, size));
+            }
+            size = 0;
+        }
+    }
+}
@@ -1,58 +1,66 @@
 package ru.yandex.practicum.filmorate.storage;
 
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 @Component
 public class GenreDbStorage implements GenreStorage {
     private static final String GET_GENRES = "SELECT * FROM genre ORDER BY genre_id ";
 
-    private static final String GET_GENRE = "SELECT * FROM genre WHERE genre_id=?";
-
     private final JdbcTemplate jdbcTemplate;
 
+    private volatile Map<Long, Genre> genres = Map.of();
+
     public GenreDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    @PostConstruct
+    public synchronized void load() {
+        Map<Long, Genre> loaded = new LinkedHashMap<>();
+        jdbcTemplate.query(GET_GENRES, this::mapRowToGenre).forEach(genre -> loaded.put(genre.getId(), genre));
+        genres = Collections.unmodifiableMap(loaded);
+    }
+
     @Override
     public Genre getGenre(long id) {
-        try {
-            return jdbcTemplate.queryForObject(GET_GENRE, this::mapRowToGenre, id);
-        } catch (EmptyResultDataAccessException e) {
+        Genre genre = genres.get(id);
+        if (genre == null) {
             throw new ItemDoesNotExistException("Genre with id=" + id + " not exist. ");
         }
+        return genre;
     }
 
     @Override
     public Set<Genre> getGenres() {
-        try {
-            return new LinkedHashSet<>(jdbcTemplate.query(GET_GENRES, this::mapRowToGenre));
-        } catch (EmptyResultDataAccessException e) {
-            throw new ItemDoesNotExistException("Genre list not exist. ");
-        }
+        return new LinkedHashSet<>(genres.values());
     }
 
     @Override
     public boolean containsGenre(long id) {
-        return jdbcTemplate.queryForRowSet(GET_GENRE, id).next();
+        return genres.containsKey(id);
     }
 
     @Override
     public long saveGenre(Genre genre) {
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("genre")
-                .usingGeneratedKeyColumns("id");
-        return simpleJdbcInsert.executeAndReturnKey(genre.toMap()).longValue();
+                .usingGeneratedKeyColumns("genre_id");
+        long id = simpleJdbcInsert.executeAndReturnKey(genre.toMap()).longValue();
+        AfterCommit.run(this::load);
+        return id;
     }
 
     private Genre mapRowToGenre(ResultSet rs, long rowNum) throws SQLException {
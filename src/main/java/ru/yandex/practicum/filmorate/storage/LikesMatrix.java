@@ -0,0 +1,253 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+public class LikesMatrix {
+
+    private static final String GET_LIKES = "SELECT user_id, film_id FROM likes ORDER BY user_id, film_id";
+
+    private static final int[] NO_LIKES = new int[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int neighbours;
+    private final Map<Long, int[]> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, int[]> usersByFilm = new ConcurrentHashMap<>();
+    private final ThreadLocal<Overlaps> overlaps = ThreadLocal.withInitial(Overlaps::new);
+
+    public LikesMatrix(JdbcTemplate jdbcTemplate,
+                       @Value("${filmorate.recommendations.neighbours:50}") int neighbours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.neighbours = neighbours;
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Long, IntArray> films = new HashMap<>();
+        Map<Long, IntArray> users = new HashMap<>();
+        jdbcTemplate.query(GET_LIKES, (RowCallbackHandler) rs -> {
+            int userId = rs.getInt("user_id");
+            int filmId = rs.getInt("film_id");
+            // Rows come ordered by user and film, so both sides are appended in ascending order
+            films.computeIfAbsent((long) userId, id -> new IntArray()).addIfGreater(filmId);
+            users.computeIfAbsent((long) filmId, id -> new IntArray()).addIfGreater(userId);
+        });
+        filmsByUser.clear();
+        usersByFilm.clear();
+        films.forEach((userId, userFilms) -> filmsByUser.put(userId, userFilms.toArray()));
+        users.forEach((filmId, filmUsers) -> usersByFilm.put(filmId, filmUsers.toArray()));
+        log.info("Likes matrix loaded for {} users and {} films", filmsByUser.size(), usersByFilm.size());
+    }
+
+    public void addLike(long filmId, long userId) {
+        filmsByUser.compute(userId, (id, userFilms) -> insert(userFilms, Math.toIntExact(filmId)));
+        usersByFilm.compute(filmId, (id, filmUsers) -> insert(filmUsers, Math.toIntExact(userId)));
+    }
+
+    public void deleteLike(long filmId, long userId) {
+        filmsByUser.computeIfPresent(userId, (id, userFilms) -> remove(userFilms, Math.toIntExact(filmId)));
+        usersByFilm.computeIfPresent(filmId, (id, filmUsers) -> remove(filmUsers, Math.toIntExact(userId)));
+    }
+
+    public List<Long> recommend(long userId, int count) {
+        int[] userFilms = filmsByUser.getOrDefault(userId, NO_LIKES);
+        if (userFilms.length == 0 || count <= 0) {
+            return List.of();
+        }
+        long[] similarUsers;
+        Overlaps counter = overlaps.get();
+        try {
+            for (int filmId : userFilms) {
+                for (int otherUserId : usersByFilm.getOrDefault((long) filmId, NO_LIKES)) {
+                    if (otherUserId != userId) {
+                        counter.add(otherUserId);
+                    }
+                }
+            }
+            similarUsers = counter.top(neighbours);
+        } finally {
+            counter.reset();
+        }
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (long similarUser : similarUsers) {
+            for (int filmId : filmsByUser.getOrDefault((long) id(similarUser), NO_LIKES)) {
+                if (Arrays.binarySearch(userFilms, filmId) < 0) {
+                    scores.merge(filmId, 1, Integer::sum);
+                }
+            }
+        }
+        long[] films = new long[scores.size()];
+        int size = 0;
+        for (Map.Entry<Integer, Integer> score : scores.entrySet()) {
+            films[size++] = rank(score.getValue(), score.getKey());
+        }
+        List<Long> filmIds = new ArrayList<>();
+        for (long film : top(films, size, count)) {
+            filmIds.add((long) id(film));
+        }
+        return filmIds;
+    }
+
+    // Higher score first, then lower id
+    private static long rank(int score, int id) {
+        return ((long) score << 32) | (Integer.MAX_VALUE - id);
+    }
+
+    private static int id(long rank) {
+        return Integer.MAX_VALUE - (int) rank;
+    }
+
+    private static long[] top(long[] ranks, int size, int count) {
+        int limit = Math.min(size, count);
+        long[] heap = new long[limit];
+        int heapSize = 0;
+        for (int i = 0; i < size && limit > 0; i++) {
+            long rank = ranks[i];
+            if (heapSize < limit) {
+                heap[heapSize] = rank;
+                siftUp(heap, heapSize++);
+            } else if (rank > heap[0]) {
+                heap[0] = rank;
+                siftDown(heap, heapSize);
+            }
+        }
+        Arrays.sort(heap);
+        for (int i = 0, j = heap.length - 1; i < j; i++, j--) {
+            swap(heap, i, j);
+        }
+        return heap;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent] <= heap[index]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (right < size && heap[right] < heap[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, smallest, index);
+            index = smallest;
+        }
+    }
+
+    private static void swap(long[] heap, int i, int j) {
+        long swap = heap[i];
+        heap[i] = heap[j];
+        heap[j] = swap;
+    }
+
+    private static int[] insert(int[] values, int value) {
+        if (values == null) {
+            return new int[]{value};
+        }
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return values;
+        }
+        position = -position - 1;
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(values, position, result, position + 1, values.length - position);
+        return result;
+    }
+
+    private static int[] remove(int[] values, int value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return null;
+        }
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, position);
+        System.arraycopy(values, position + 1, result, position, values.length - position - 1);
+        return result;
+    }
+
+    private static final class IntArray {
+        private int[] values = new int[8];
+        private int size;
+
+        private void addIfGreater(int value) {
+            if (size > 0 && values[size - 1] >= value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    // Per-thread overlap counters indexed by user id, reset after every request
+    private static final class Overlaps {
+        private int[] counts = new int[1024];
+        private int[] touched = new int[1024];
+        private int touchedSize;
+
+        private void add(int userId) {
+            if (userId >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(userId + 1, counts.length * 2));
+            }
+            if (counts[userId]++ == 0) {
+                if (touchedSize == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedSize * 2);
+                }
+                touched[touchedSize++] = userId;
+            }
+        }
+
+        private long[] top(int count) {
+            long[] ranks = new long[touchedSize];
+            for (int i = 0; i < touchedSize; i++) {
+                ranks[i] = rank(counts[touched[i]], touched[i]);
+            }
+            return LikesMatrix.top(ranks, touchedSize, count);
+        }
+
+        private void reset() {
+            for (int i = 0; i < touchedSize; i++) {
+                counts[touched[i]] = 0;
+            }
+            touchedSize = 0;
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package ru.yandex.practicum.filmorate.storage;
 
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 @Component
@@ -17,43 +20,48 @@ public class MpaDbStorage implements MpaStorage {
 
     private static final String GET_MPAS = "SELECT * FROM mpa ORDER BY mpa_id ";
 
-    private static final String GET_MPA = "SELECT * FROM mpa WHERE mpa_id=?";
-
     private final JdbcTemplate jdbcTemplate;
 
+    private volatile Map<Long, Mpa> mpas = Map.of();
+
     public MpaDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    @PostConstruct
+    public synchronized void load() {
+        Map<Long, Mpa> loaded = new LinkedHashMap<>();
+        jdbcTemplate.query(GET_MPAS, this::mapRowToMpa).forEach(mpa -> loaded.put(mpa.getId(), mpa));
+        mpas = Collections.unmodifiableMap(loaded);
+    }
+
     @Override
     public Mpa getMpa(long id) {
-        try {
-            return jdbcTemplate.queryForObject(GET_MPA, this::mapRowToMpa, id);
-        } catch (EmptyResultDataAccessException e) {
+        Mpa mpa = mpas.get(id);
+        if (mpa == null) {
             throw new ItemDoesNotExistException("MPA with id=" + id + " not exist. ");
         }
+        return mpa;
     }
 
     @Override
     public Set<Mpa> getMpas() {
-        try {
-            return new LinkedHashSet<>(jdbcTemplate.query(GET_MPAS, this::mapRowToMpa));
-        } catch (EmptyResultDataAccessException e) {
-            throw new ItemDoesNotExistException("MPA list not exist. ");
-        }
+        return new LinkedHashSet<>(mpas.values());
     }
 
     @Override
     public long saveMpa(Mpa mpa) {
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("mpa")
-                .usingGeneratedKeyColumns("id");
-        return simpleJdbcInsert.executeAndReturnKey(mpa.toMap()).longValue();
+                .usingGeneratedKeyColumns("mpa_id");
+        long id = simpleJdbcInsert.executeAndReturnKey(mpa.toMap()).longValue();
+        AfterCommit.run(this::load);
+        return id;
     }
 
     @Override
     public boolean containsMpa(long id) {
-        return jdbcTemplate.queryForRowSet(GET_MPA, id).next();
+        return mpas.containsKey(id);
     }
 
     private Mpa mapRowToMpa(ResultSet rs, long rowNum) throws SQLException {
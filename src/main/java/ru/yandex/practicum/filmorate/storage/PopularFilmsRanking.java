@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.LongPredicate;
+
+// Keeps the likes of every film, not only the top max-count: an unlike can move any film into the top, search
+// orders its ties by likes of arbitrary films, and projected responses read likes from here. A bounded ranking
+// would need a query for the film replacing an evicted one. max-count is the largest count served from memory
+@Component
+@Slf4j
+public class PopularFilmsRanking {
+
+    private static final String GET_FILMS_LIKES = "SELECT film_id, likes_count FROM films";
+
+    private static final Comparator<FilmLikes> MOST_LIKED_FIRST =
+            Comparator.comparingLong((FilmLikes f) -> -f.likes).thenComparingLong(f -> f.filmId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxCount;
+    private final Map<Long, FilmLikes> films = new HashMap<>();
+    private final NavigableSet<FilmLikes> ranking = new TreeSet<>(MOST_LIKED_FIRST);
+
+    public PopularFilmsRanking(JdbcTemplate jdbcTemplate,
+                               @Value("${filmorate.popular.max-count:1000}") int maxCount) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxCount = maxCount;
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        films.clear();
+        ranking.clear();
+        jdbcTemplate.query(GET_FILMS_LIKES, (RowCallbackHandler) rs ->
+                put(new FilmLikes(rs.getLong("film_id"), rs.getLong("likes_count"))));
+        log.info("Popular films ranking loaded for {} films", films.size());
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    public synchronized void addFilm(long filmId) {
+        if (!films.containsKey(filmId)) {
+            put(new FilmLikes(filmId, 0));
+        }
+    }
+
+    // Likes of one film call back in commit order, so deltas are applied as is
+    public synchronized void changeLikes(long filmId, long delta) {
+        FilmLikes current = films.get(filmId);
+        if (current == null || delta == 0) {
+            return;
+        }
+        ranking.remove(current);
+        put(new FilmLikes(filmId, current.likes + delta));
+    }
+
+    public synchronized long getLikes(long filmId) {
+        FilmLikes current = films.get(filmId);
+        return current == null ? 0 : current.likes;
+    }
+
+    public List<Long> getTopFilmIds(int count) {
+        return getTopFilmIds(count, filmId -> true);
+    }
+
+    public synchronized List<Long> getTopFilmIds(int count, LongPredicate filter) {
+        List<Long> filmIds = new ArrayList<>(Math.min(count, ranking.size()));
+        Iterator<FilmLikes> iterator = ranking.iterator();
+        while (iterator.hasNext() && filmIds.size() < count) {
+            long filmId = iterator.next().filmId;
+            if (filter.test(filmId)) {
+                filmIds.add(filmId);
+            }
+        }
+        return filmIds;
+    }
+
+    private void put(FilmLikes filmLikes) {
+        films.put(filmLikes.filmId, filmLikes);
+        ranking.add(filmLikes);
+    }
+
+    private static final class FilmLikes {
+        private final long filmId;
+        private final long likes;
+
+        private FilmLikes(long filmId, long likes) {
+            this.filmId = filmId;
+            this.likes = likes;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Collection;
+
+@Component
+@Slf4j
+public class UserCache extends AggregateCache<User> {
+
+    private static final String GET_USER_IDS = "SELECT user_id FROM users";
+
+    // Rough heap cost of one cached user without its strings: map entry, key, holder, User and LocalDate
+    private static final long ENTRY_BYTES = 160;
+
+    private static final long STRING_BYTES = 40;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean idsEnabled;
+    // Users are never deleted, so the set of existing ids answers existence checks both ways
+    private final BitSet knownIds = new BitSet();
+
+    public UserCache(JdbcTemplate jdbcTemplate,
+                     @Value("${filmorate.cache.users.max-size:10000}") int maxSize,
+                     @Value("${filmorate.cache.users.ttl:10m}") Duration ttl,
+                     @Value("${filmorate.cache.users.ids-enabled:true}") boolean idsEnabled) {
+        super(maxSize, ttl);
+        this.jdbcTemplate = jdbcTemplate;
+        this.idsEnabled = idsEnabled;
+    }
+
+    @PostConstruct
+    public void load() {
+        clear();
+        if (!idsEnabled) {
+            return;
+        }
+        BitSet loaded = new BitSet();
+        jdbcTemplate.query(GET_USER_IDS, (RowCallbackHandler) rs -> loaded.set(rs.getInt("user_id")));
+        synchronized (knownIds) {
+            knownIds.clear();
+            knownIds.or(loaded);
+        }
+        log.info("User ids loaded for {} users, {} KB", loaded.cardinality(), getIdsBytes() / 1024);
+    }
+
+    public boolean isIdsEnabled() {
+        return idsEnabled;
+    }
+
+    public boolean isKnown(long userId) {
+        if (userId <= 0 || userId > Integer.MAX_VALUE) {
+            return false;
+        }
+        synchronized (knownIds) {
+            return knownIds.get((int) userId);
+        }
+    }
+
+    public void addIds(Collection<Long> userIds) {
+        if (!idsEnabled) {
+            return;
+        }
+        synchronized (knownIds) {
+            userIds.forEach(userId -> knownIds.set(Math.toIntExact(userId)));
+        }
+    }
+
+    public long getIdsBytes() {
+        synchronized (knownIds) {
+            return knownIds.size() / Byte.SIZE;
+        }
+    }
+
+    public long getMemoryFootprint() {
+        return getIdsBytes() + sum(user -> ENTRY_BYTES + stringBytes(user.getLogin()) +
+                stringBytes(user.getName()) + stringBytes(user.getEmail()));
+    }
+
+    @Override
+    protected long idOf(User user) {
+        return user.getId();
+    }
+
+    @Override
+    protected User copy(User user) {
+        return User.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .login(user.getLogin())
+                .name(user.getName())
+                .birthday(user.getBirthday())
+                .build();
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : STRING_BYTES + value.length();
+    }
+}
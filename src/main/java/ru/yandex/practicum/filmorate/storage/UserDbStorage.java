@@ -1,24 +1,43 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component("userDbStorage")
 public class UserDbStorage implements UserStorage {
 
     private static final String GET_USERS = "SELECT * FROM users ORDER BY user_id ";
 
+    private static final String GET_USERS_PAGE = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+
     private static final String GET_USER = "SELECT * FROM users WHERE user_id=?";
 
+    private static final String GET_USERS_BY_IDS = "SELECT * FROM users WHERE user_id IN (%s) ORDER BY user_id";
+
     private static final String GET_USER_ID = "SELECT user_id FROM users WHERE user_id=?";
 
+    private static final String COUNT_USERS = "SELECT COUNT(*) FROM users WHERE user_id IN (?,?)";
+
     private static final String UPDATE_USER =
             "UPDATE users SET user_name=?, login=?, email=?, birthday=? WHERE user_id=? ";
 
@@ -26,6 +45,11 @@ public class UserDbStorage implements UserStorage {
             "SELECT * FROM users WHERE user_id IN " +
                     "(SELECT friend_id FROM friends WHERE user_id=? ORDER BY friend_id) ORDER BY user_id";
 
+    private static final String GET_CONFIRMED_FRIENDS_AS_USERS =
+            "SELECT * FROM users WHERE user_id IN " +
+                    "(SELECT friend_id FROM friends WHERE user_id=? AND approval=true ORDER BY friend_id) " +
+                    "ORDER BY user_id";
+
     private static final String GET_COMMON_FRIENDS_AS_USERS =
             "SELECT * FROM users " +
                     "WHERE user_id IN " +
@@ -36,28 +60,78 @@ public class UserDbStorage implements UserStorage {
                     "ORDER BY friend_id) " +
                     "ORDER BY user_id";
 
-    private static final String INSERT_FRIEND = "INSERT INTO friends (user_id, friend_id, approval) VALUES (?,?,?)";
+    private static final String GET_COMMON_CONFIRMED_FRIENDS_AS_USERS =
+            "SELECT * FROM users " +
+                    "WHERE user_id IN " +
+                    "(SELECT friend_id FROM friends " +
+                    "WHERE user_id=? AND approval=true AND friend_id IN " +
+                    "(SELECT friend_id FROM friends " +
+                    "WHERE user_id=? AND approval=true) " +
+                    "ORDER BY friend_id) " +
+                    "ORDER BY user_id";
+
+    private static final String GET_SUGGESTED_IDS =
+            "SELECT f2.friend_id FROM friends f1 JOIN friends f2 ON f2.user_id=f1.friend_id " +
+                    "WHERE f1.user_id=? AND f2.friend_id<>f1.user_id AND NOT EXISTS " +
+                    "(SELECT 1 FROM friends f3 WHERE f3.user_id=f1.user_id AND f3.friend_id=f2.friend_id) " +
+                    "GROUP BY f2.friend_id ORDER BY COUNT(DISTINCT f1.friend_id) DESC, f2.friend_id LIMIT ?";
+
+    private static final String GET_FRIEND_IDS = "SELECT friend_id FROM friends WHERE user_id=? ORDER BY friend_id";
+
+    private static final String INSERT_USER = "INSERT INTO users (login, user_name, email, birthday) VALUES (?,?,?,?)";
+
+    private static final String LOCK_USER = "SELECT user_id FROM users WHERE user_id=? FOR UPDATE";
 
-    private static final String DELETE_FRIEND = "DELETE FROM friends WHERE user_id=? AND friend_id=?";
+    private static final String MERGE_FRIEND = "MERGE INTO friends f USING (VALUES (CAST(? AS INTEGER), " +
+            "CAST(? AS INTEGER), CAST(? AS BOOLEAN))) s (user_id, friend_id, approval) " +
+            "ON f.user_id=s.user_id AND f.friend_id=s.friend_id " +
+            "WHEN MATCHED THEN UPDATE SET approval=s.approval " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, friend_id, approval) VALUES (s.user_id, s.friend_id, s.approval)";
+
+    private static final String SET_APPROVAL = "UPDATE friends SET approval=? WHERE user_id=? AND friend_id=?";
+
+    // Returns the approval of the deleted row, a confirmed friendship has to be unconfirmed on the other side
+    private static final String DELETE_FRIEND =
+            "SELECT approval FROM OLD TABLE (DELETE FROM friends WHERE user_id=? AND friend_id=?)";
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final int IN_BATCH_SIZE = 1000;
 
     private final JdbcTemplate jdbcTemplate;
+    private final FriendshipGraph friendshipGraph;
+    private final UserCache userCache;
+    private final CommitOrder pairChanges = new CommitOrder();
 
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, FriendshipGraph friendshipGraph, UserCache userCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.friendshipGraph = friendshipGraph;
+        this.userCache = userCache;
     }
 
+    // Stays outside a transaction, so the id bitmap is filled before the new user is read back
     @Override
     public User create(User user) {
-        long userId = saveUser(user);
+        long userId = saveUsers(List.of(user)).get(0);
         return getUser(userId);
     }
 
+    @Override
+    @Transactional
+    public List<Long> createAll(List<User> users) {
+        return saveUsers(users);
+    }
+
     @Override
     public User update(User user) {
         long userId = user.getId();
-        jdbcTemplate.update(UPDATE_USER, user.getName(), user.getLogin(),
+        int updated = jdbcTemplate.update(UPDATE_USER, user.getName(), user.getLogin(),
                 user.getEmail(), user.getBirthday(), userId);
-        return getUser(userId);
+        if (updated == 0) {
+            throw new ItemDoesNotExistException("User with id=" + userId + " not exist. ");
+        }
+        AfterCommit.run(() -> userCache.invalidate(userId));
+        return user;
     }
 
     @Override
@@ -65,44 +139,201 @@ public class UserDbStorage implements UserStorage {
         return new ArrayList<>(jdbcTemplate.query(GET_USERS, this::mapRowToUser));
     }
 
+    @Override
+    public List<User> getUsers(long afterId, int limit) {
+        return new ArrayList<>(jdbcTemplate.query(GET_USERS_PAGE, this::mapRowToUser, afterId, limit));
+    }
+
+    @Override
+    public void streamUsers(Consumer<User> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(GET_USERS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRowToUser(rs, rs.getRow())));
+    }
+
     @Override
     public User getUser(long id) {
-        return jdbcTemplate.queryForObject(GET_USER, this::mapRowToUser, id);
+        if (userCache.isIdsEnabled() && !userCache.isKnown(id)) {
+            throw new ItemDoesNotExistException("User with id=" + id + " not exist. ");
+        }
+        User user = userCache.get(id);
+        if (user != null) {
+            return user;
+        }
+        long version = userCache.version(id);
+        try {
+            user = jdbcTemplate.queryForObject(GET_USER, this::mapRowToUser, id);
+        } catch (EmptyResultDataAccessException e) {
+            throw new ItemDoesNotExistException("User with id=" + id + " not exist. ");
+        }
+        userCache.put(user, version);
+        return user;
     }
 
+    // A request made when the other user has already asked for friendship accepts it: both rows become approved
     @Override
+    @Transactional
     public User addFriend(long userId, long friendId) {
-        jdbcTemplate.update(INSERT_FRIEND, userId, friendId, false);
+        if (userCache.isIdsEnabled()) {
+            requireUsers(userId, friendId);
+        }
+        CommitOrder.Change change = lockPair(userId, friendId);
+        boolean confirmed = jdbcTemplate.update(SET_APPROVAL, true, friendId, userId) > 0;
+        try {
+            jdbcTemplate.update(MERGE_FRIEND, userId, friendId, confirmed);
+        } catch (DataIntegrityViolationException e) {
+            throw new ItemDoesNotExistException("User with id=" + userId + " or user with id=" + friendId +
+                    " not exist. ");
+        }
+        change.onCommit(() -> friendshipGraph.addFriend(userId, friendId, confirmed));
         return getUser(friendId);
     }
 
     @Override
+    @Transactional
     public User deleteFriend(long userId, long friendId) {
-        jdbcTemplate.update(DELETE_FRIEND, userId, friendId);
+        if (userCache.isIdsEnabled()) {
+            requireUsers(userId, friendId);
+        }
+        CommitOrder.Change change = lockPair(userId, friendId);
+        List<Boolean> deleted = jdbcTemplate.queryForList(DELETE_FRIEND, Boolean.class, userId, friendId);
+        if (deleted.isEmpty()) {
+            requireUsers(userId, friendId);
+        } else if (deleted.contains(true)) {
+            jdbcTemplate.update(SET_APPROVAL, false, friendId, userId);
+        }
+        change.onCommit(() -> friendshipGraph.deleteFriend(userId, friendId));
         return getUser(friendId);
     }
 
     @Override
-    public List<User> getCommonFriends(long userId, long otherUserId) {
-        return new ArrayList<>(jdbcTemplate
-                .query(GET_COMMON_FRIENDS_AS_USERS, this::mapRowToUser, userId, otherUserId));
+    public List<User> getCommonFriends(long userId, long otherUserId, boolean confirmed) {
+        List<User> commonFriends;
+        if (friendshipGraph.isEnabled()) {
+            commonFriends = getUsersByIds(friendshipGraph.getCommonFriends(userId, otherUserId, confirmed));
+        } else {
+            commonFriends = new ArrayList<>(jdbcTemplate.query(confirmed ? GET_COMMON_CONFIRMED_FRIENDS_AS_USERS :
+                    GET_COMMON_FRIENDS_AS_USERS, this::mapRowToUser, userId, otherUserId));
+        }
+        if (commonFriends.isEmpty()) {
+            requireUsers(userId, otherUserId);
+        }
+        return commonFriends;
     }
 
     @Override
-    public List<User> getFriends(long userId) {
-        return new ArrayList<>(jdbcTemplate.query(GET_USER_FRIENDS_AS_USERS, this::mapRowToUser, userId));
+    public List<User> getFriends(long userId, boolean confirmed) {
+        List<User> friends = new ArrayList<>(jdbcTemplate.query(confirmed ? GET_CONFIRMED_FRIENDS_AS_USERS :
+                GET_USER_FRIENDS_AS_USERS, this::mapRowToUser, userId));
+        if (friends.isEmpty() && !containsUser(userId)) {
+            throw new ItemDoesNotExistException("User with id=" + userId + " not exist. ");
+        }
+        return friends;
+    }
+
+    @Override
+    public long[] getFriendIds(long userId) {
+        if (friendshipGraph.isEnabled()) {
+            return friendshipGraph.getFriends(userId);
+        }
+        return jdbcTemplate.queryForList(GET_FRIEND_IDS, Long.class, userId).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    @Override
+    public List<User> getSuggestions(long userId, int count) {
+        if (friendshipGraph.isEnabled()) {
+            return getUsersByIds(friendshipGraph.suggestFriends(userId, count));
+        }
+        return getUsersByIds(jdbcTemplate.queryForList(GET_SUGGESTED_IDS, Long.class, userId, count).stream()
+                .mapToLong(Long::longValue)
+                .toArray());
     }
 
     @Override
     public boolean containsUser(long userId) {
+        if (userCache.isIdsEnabled()) {
+            return userCache.isKnown(userId);
+        }
         return jdbcTemplate.queryForRowSet(GET_USER_ID, userId).next();
     }
 
-    private long saveUser(User user) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("user_id");
-        return simpleJdbcInsert.executeAndReturnKey(user.toMap()).longValue();
+    // Both users of a pair lock the row of the one with the lower id, so a request and the opposite request made at
+    // the same time are applied one after another and the second one sees the first. The same lock orders their
+    // after-commit updates of the graph
+    private CommitOrder.Change lockPair(long userId, long friendId) {
+        long lockedId = Math.min(userId, friendId);
+        jdbcTemplate.queryForList(LOCK_USER, Long.class, lockedId);
+        return pairChanges.change(lockedId);
+    }
+
+    private void requireUsers(long userId, long otherUserId) {
+        boolean exist;
+        if (userCache.isIdsEnabled()) {
+            exist = userCache.isKnown(userId) && userCache.isKnown(otherUserId);
+        } else {
+            int expected = userId == otherUserId ? 1 : 2;
+            exist = jdbcTemplate.queryForObject(COUNT_USERS, Integer.class, userId, otherUserId) >= expected;
+        }
+        if (!exist) {
+            throw new ItemDoesNotExistException("User with id=" + userId + " or user with id=" + otherUserId +
+                    " not exist. ");
+        }
+    }
+
+    private List<User> getUsersByIds(long[] userIds) {
+        Map<Long, User> users = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (long userId : userIds) {
+            User user = userCache.get(userId);
+            if (user != null) {
+                users.put(userId, user);
+            } else {
+                missingIds.add(userId);
+            }
+        }
+        for (int from = 0; from < missingIds.size(); from += IN_BATCH_SIZE) {
+            List<Long> batch = missingIds.subList(from, Math.min(from + IN_BATCH_SIZE, missingIds.size()));
+            Map<Long, Long> versions = new HashMap<>();
+            batch.forEach(userId -> versions.put(userId, userCache.version(userId)));
+            String sql = String.format(GET_USERS_BY_IDS, String.join(",", Collections.nCopies(batch.size(), "?")));
+            for (User user : jdbcTemplate.query(sql, this::mapRowToUser, batch.toArray())) {
+                users.put(user.getId(), user);
+                userCache.put(user, versions.get(user.getId()));
+            }
+        }
+        return Arrays.stream(userIds)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private List<Long> saveUsers(List<User> users) {
+        List<Long> userIds = jdbcTemplate.execute(
+                (Connection connection) -> connection.prepareStatement(INSERT_USER, new String[]{"user_id"}),
+                (PreparedStatement ps) -> {
+                    for (User user : users) {
+                        ps.setString(1, user.getLogin());
+                        ps.setString(2, user.getName());
+                        ps.setString(3, user.getEmail());
+                        ps.setObject(4, user.getBirthday());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    List<Long> ids = new ArrayList<>(users.size());
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            ids.add(keys.getLong(1));
+                        }
+                    }
+                    return ids;
+                });
+        AfterCommit.run(() -> userCache.addIds(userIds));
+        return userIds;
     }
 
     private User mapRowToUser(ResultSet rs, long rowNum) throws SQLException {
@@ -3,15 +3,22 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     User create(User user);
 
+    List<Long> createAll(List<User> users);
+
     User update(User user);
 
     List<User> getUsers();
 
+    List<User> getUsers(long afterId, int limit);
+
+    void streamUsers(Consumer<User> consumer);
+
     User getUser(long id);
 
     boolean containsUser(long id);
@@ -20,7 +27,11 @@ public interface UserStorage {
 
     User deleteFriend(long userId, long friendId);
 
-    List<User> getFriends(long userId);
+    List<User> getFriends(long userId, boolean confirmed);
+
+    long[] getFriendIds(long userId);
+
+    List<User> getCommonFriends(long userId, long otherUserId, boolean confirmed);
 
-    List<User> getCommonFriends(long userId, long otherUserId);
+    List<User> getSuggestions(long userId, int count);
 }
\ No newline at end of file
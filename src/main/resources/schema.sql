@@ -24,9 +24,14 @@ CREATE TABLE IF NOT EXISTS Films
     release_date TIMESTAMP,
     description  varchar(200) NOT NULL,
     duration     integer CHECK (duration > 0),
-    rate         integer CHECK (duration >= 0)
+    rate         integer CHECK (duration >= 0),
+    likes_count  INTEGER DEFAULT 0 NOT NULL,
+    release_year INTEGER GENERATED ALWAYS AS (EXTRACT(YEAR FROM release_date))
 );
 
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON Films (likes_count DESC, film_id);
+CREATE INDEX IF NOT EXISTS films_year_likes_count_idx ON Films (release_year, likes_count DESC, film_id);
+
 CREATE TABLE IF NOT EXISTS Genre
 (
     genre_id   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -43,27 +48,46 @@ CREATE TABLE IF NOT EXISTS Likes
 (
     like_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     film_id INTEGER REFERENCES Films (film_id) ON delete CASCADE,
-    user_id INTEGER REFERENCES Users (user_id) ON DELETE CASCADE
+    user_id INTEGER REFERENCES Users (user_id) ON DELETE CASCADE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    CONSTRAINT likes_film_user_uk UNIQUE (film_id, user_id)
 );
 
+CREATE INDEX IF NOT EXISTS likes_user_film_idx ON Likes (user_id, film_id);
+
 CREATE TABLE IF NOT EXISTS Friends
 (
     friendship_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    user_id       INTEGER NOT NULL REFERENCES Users (user_id) ON DELETE CASCADE,
+    user_id       INTEGER NOT NULL,
     friend_id     INTEGER NOT NULL,
-    approval   boolean
+    approval   boolean,
+    CONSTRAINT friends_user_friend_uk UNIQUE (user_id, friend_id)
 );
 
+CREATE INDEX IF NOT EXISTS friends_friend_user_idx ON Friends (friend_id, user_id);
+CREATE INDEX IF NOT EXISTS friends_user_approval_friend_idx ON Friends (user_id, approval, friend_id);
+
+ALTER TABLE Friends ADD CONSTRAINT IF NOT EXISTS friends_user_fk
+    FOREIGN KEY (user_id) REFERENCES Users (user_id) ON DELETE CASCADE;
+ALTER TABLE Friends ADD CONSTRAINT IF NOT EXISTS friends_friend_fk
+    FOREIGN KEY (friend_id) REFERENCES Users (user_id) ON DELETE CASCADE;
+
 CREATE TABLE IF NOT EXISTS Film_genres
 (
     id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    film_id INTEGER REFERENCES Films (film_id) ON DELETE CASCADE,
-    genre_id INTEGER REFERENCES Genre (genre_id) ON DELETE CASCADE
+    film_id INTEGER,
+    genre_id INTEGER REFERENCES Genre (genre_id) ON DELETE CASCADE,
+    CONSTRAINT film_genres_film_genre_uk UNIQUE (film_id, genre_id),
+    FOREIGN KEY (film_id) REFERENCES Films (film_id) ON DELETE CASCADE
 );
 
+CREATE INDEX IF NOT EXISTS film_genres_genre_film_idx ON Film_genres (genre_id, film_id);
+
 CREATE TABLE IF NOT EXISTS Film_MPAs
 (
     id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    film_id INTEGER REFERENCES Films (film_id) ON DELETE CASCADE,
-    MPA_id INTEGER REFERENCES MPA (MPA_id) ON DELETE CASCADE
+    film_id INTEGER,
+    MPA_id INTEGER REFERENCES MPA (MPA_id) ON DELETE CASCADE,
+    CONSTRAINT film_mpas_film_uk UNIQUE (film_id),
+    FOREIGN KEY (film_id) REFERENCES Films (film_id) ON DELETE CASCADE
 );
\ No newline at end of file
@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptions;
+import ru.yandex.practicum.filmorate.metrics.QueryCountingDataSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.perform;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class BatchImportTest {
+
+    private static final String COUNT_USERS = "SELECT COUNT(*) FROM users";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void createAll_UsesOrderOfMagnitudeFewerStatementsThanSingleCreates() {
+        QueryCountingDataSource queries = (QueryCountingDataSource) dataSource;
+        long singleQueries = queries.countStatements(() -> films(200).forEach(filmService::create));
+        List<Long> ids = new ArrayList<>();
+        long batchQueries = queries.countStatements(() -> ids.addAll(filmService.createAll(films(200))));
+        assertEquals(200, ids.size());
+        assertTrue(batchQueries * 10 <= singleQueries, batchQueries + " vs " + singleQueries);
+        Film last = filmStorage.getFilm(ids.get(ids.size() - 1));
+        assertEquals(Set.of(2L, 3L), last.getGenres().stream().map(Genre::getId).collect(Collectors.toSet()));
+        assertEquals(2, last.getMpa().getId());
+    }
+
+    @Test
+    void createAll_RejectsWholeBatchWithInvalidFilm() {
+        List<Film> films = films(3);
+        films.get(2).setReleaseDate(LocalDate.of(1800, 1, 1));
+        int before = filmStorage.getFilms().size();
+        assertThrows(ValidationExceptions.class, () -> filmService.createAll(films));
+        assertEquals(before, filmStorage.getFilms().size());
+    }
+
+    @Test
+    void postBatch_RejectsInvalidOrMissingItemsWithBadRequest() throws Exception {
+        List<Film> films = films(2);
+        films.get(1).setName(" ");
+        int before = filmStorage.getFilms().size();
+        perform(mockMvc, post("/films/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(films)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Film #1: Name can't be empty"));
+        perform(mockMvc, post("/films/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + objectMapper.writeValueAsString(films.get(0)) + ",null]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Film #1: absent"));
+        perform(mockMvc, post("/films/batch")
+                .contentType("application/x-ndjson")
+                .content(objectMapper.writeValueAsString(films.get(1)) + "\n"))
+                .andExpect(status().isBadRequest());
+        perform(mockMvc, post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[null]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("User #0: absent"));
+        assertEquals(before, filmStorage.getFilms().size());
+    }
+
+    @Test
+    void createAllUsers_RollsBackChunkWhenInsertFails() {
+        Integer before = jdbcTemplate.queryForObject(COUNT_USERS, Integer.class);
+        List<User> users = List.of(
+                User.builder().email("fet@mail.ru").login("fet").birthday(LocalDate.of(1987, 3, 12)).build(),
+                User.builder().email("tut@mail.ru").login("t".repeat(300)).birthday(LocalDate.of(1990, 5, 1)).build());
+        assertThrows(DataAccessException.class, () -> userStorage.createAll(users));
+        assertEquals(before, jdbcTemplate.queryForObject(COUNT_USERS, Integer.class));
+    }
+
+    @Test
+    void postFilmsBatch_RollsBackEarlierChunksWhenLaterItemFails() throws Exception {
+        int before = filmStorage.getFilms().size();
+        StringBuilder body = new StringBuilder();
+        for (Film film : films(1000)) {
+            body.append(objectMapper.writeValueAsString(film)).append('\n');
+        }
+        Film invalid = films(1).get(0);
+        invalid.setReleaseDate(LocalDate.of(1800, 1, 1));
+        perform(mockMvc, post("/films/batch")
+                .contentType("application/x-ndjson")
+                .content(body + objectMapper.writeValueAsString(invalid) + "\n"))
+                .andExpect(status().isBadRequest());
+        perform(mockMvc, post("/films/batch")
+                .contentType("application/x-ndjson")
+                .content(body + "{\"name\": \"Film\", \"duration\": \"long\"}\n"))
+                .andExpect(status().isBadRequest());
+        perform(mockMvc, post("/films/batch")
+                .contentType("application/x-ndjson")
+                .content(body + "{\"name\": \n"))
+                .andExpect(status().isBadRequest());
+        assertEquals(before, filmStorage.getFilms().size());
+
+        Integer users = jdbcTemplate.queryForObject(COUNT_USERS, Integer.class);
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(TestData.user());
+        }
+        User tooLong = TestData.user();
+        tooLong.setLogin("t".repeat(300));
+        batch.add(tooLong);
+        assertThrows(DataAccessException.class, () -> userService.createAll(batch));
+        assertThrows(DataAccessException.class, () -> userService.createAll(batch.iterator()));
+        assertEquals(users, jdbcTemplate.queryForObject(COUNT_USERS, Integer.class));
+    }
+
+    @Test
+    void postUsersBatch_ReturnsGeneratedIds() throws Exception {
+        List<User> users = List.of(
+                User.builder().email("fet@mail.ru").login("fet").birthday(LocalDate.of(1987, 3, 12)).build(),
+                User.builder().email("tut@mail.ru").login("tut").birthday(LocalDate.of(1990, 5, 1)).build());
+        String response = perform(mockMvc, post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(users)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn().getResponse().getContentAsString();
+        long[] ids = objectMapper.readValue(response, long[].class);
+        assertEquals("tut", userStorage.getUser(ids[1]).getName());
+    }
+
+    @Test
+    void postFilmsBatch_AcceptsNdjson() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (Film film : films(3)) {
+            body.append(objectMapper.writeValueAsString(film)).append('\n');
+        }
+        String response = perform(mockMvc, post("/films/batch")
+                        .contentType("application/x-ndjson")
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andReturn().getResponse().getContentAsString();
+        long[] ids = objectMapper.readValue(response, long[].class);
+        assertEquals("Film 2", filmStorage.getFilm(ids[2]).getName());
+    }
+
+    private List<Film> films(int count) {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            films.add(Film.builder()
+                    .name("Film " + i)
+                    .description("About combining an incompatible")
+                    .releaseDate(LocalDate.of(1999, 7, 14))
+                    .duration(102L)
+                    .mpa(Mpa.builder().id(2).build())
+                    .genres(Set.of(Genre.builder().id(2).build(), Genre.builder().id(3).build()))
+                    .build());
+        }
+        return films;
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultMatcher;
+import ru.yandex.practicum.filmorate.metrics.QueryCountingDataSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.perform;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class EndpointQueryCountTest {
+
+    private static final long MISSING_ID = 1_000_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void filmEndpoints_UseAtMostThreeStatements() throws Exception {
+        long filmId = filmStorage.create(film(1, 2)).getId();
+        long userId = userStorage.create(user()).getId();
+        assertStatements(3, post("/films").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(film(1, 2))), status().isOk());
+        Film changed = film(1, 2);
+        changed.setId(filmId);
+        assertStatements(3, put("/films").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(changed)), status().isOk());
+        assertStatements(1, get("/films/" + filmId), status().isOk());
+        assertStatements(2, put("/films/" + filmId + "/like/" + userId), status().isOk());
+        assertStatements(2, delete("/films/" + filmId + "/like/" + userId), status().isOk());
+    }
+
+    @Test
+    void filmEndpoints_ReturnNotFoundForMissingIds() throws Exception {
+        long filmId = filmStorage.create(film(1)).getId();
+        long userId = userStorage.create(user()).getId();
+        Film missing = film(1);
+        missing.setId(MISSING_ID);
+        assertStatements(1, put("/films").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(missing)), status().isNotFound());
+        assertStatements(1, get("/films/" + MISSING_ID), status().isNotFound());
+        assertStatements(2, put("/films/" + filmId + "/like/" + MISSING_ID), status().isNotFound());
+        assertStatements(1, put("/films/" + MISSING_ID + "/like/" + userId), status().isNotFound());
+        assertStatements(1, delete("/films/" + MISSING_ID + "/like/" + userId), status().isNotFound());
+    }
+
+    @Test
+    void userEndpoints_UseFewStatements() throws Exception {
+        User user = userStorage.create(user());
+        long friendId = userStorage.create(user()).getId();
+        long otherId = userStorage.create(user()).getId();
+        userStorage.addFriend(otherId, friendId);
+        assertStatements(1, put("/users").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(user)), status().isOk());
+        assertStatements(1, get("/users/" + user.getId()), status().isOk());
+        assertStatements(0, get("/users/" + user.getId()), status().isOk());
+        assertStatements(3, put("/users/" + user.getId() + "/friends/" + friendId), status().isOk());
+        assertStatements(1, get("/users/" + user.getId() + "/friends"), status().isOk());
+        assertStatements(0, get("/users/" + user.getId() + "/friends/common/" + otherId), status().isOk());
+        assertStatements(2, delete("/users/" + user.getId() + "/friends/" + friendId), status().isOk());
+    }
+
+    @Test
+    void userEndpoints_ReturnNotFoundForMissingIds() throws Exception {
+        User user = userStorage.create(user());
+        User missing = userStorage.create(user());
+        missing.setId(MISSING_ID);
+        assertStatements(1, put("/users").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(missing)), status().isNotFound());
+        assertStatements(0, get("/users/" + MISSING_ID), status().isNotFound());
+        assertStatements(0, put("/users/" + user.getId() + "/friends/" + MISSING_ID), status().isNotFound());
+        assertStatements(0, delete("/users/" + MISSING_ID + "/friends/" + user.getId()), status().isNotFound());
+        assertStatements(1, get("/users/" + MISSING_ID + "/friends"), status().isNotFound());
+        assertStatements(0, get("/users/" + user.getId() + "/friends/common/" + MISSING_ID),
+                status().isNotFound());
+    }
+
+    @Test
+    void pagedEndpoints_RejectBadLimitAndCountWithoutStatements() throws Exception {
+        assertStatements(0, get("/films").param("limit", "0"), status().isBadRequest());
+        assertStatements(0, get("/users").param("afterId", "1").param("limit", "-1"), status().isBadRequest());
+        assertStatements(0, get("/films/popular").param("count", "-1"), status().isBadRequest());
+        assertStatements(0, get("/films/popular").param("count", "0").param("year", "1999"),
+                status().isBadRequest());
+    }
+
+    private void assertStatements(long expected, RequestBuilder request, ResultMatcher status) {
+        QueryCountingDataSource queries = (QueryCountingDataSource) dataSource;
+        long statements = queries.countStatements(() -> {
+            try {
+                perform(mockMvc, request).andExpect(status);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        assertEquals(expected, statements);
+    }
+}
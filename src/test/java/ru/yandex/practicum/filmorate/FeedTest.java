@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
+import ru.yandex.practicum.filmorate.model.FeedEvent;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.ActivityFeed;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.createFilms;
+import static ru.yandex.practicum.filmorate.TestData.createUsers;
+import static ru.yandex.practicum.filmorate.TestData.perform;
+import static ru.yandex.practicum.filmorate.TestData.runBetweenCommitAndCallbacks;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class FeedTest {
+
+    private static final String GET_LAST_LIKE_IDS =
+            "SELECT like_id FROM likes WHERE user_id=? ORDER BY like_id DESC LIMIT ?";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void getFeed_MergesLikesOfFriendsNewestFirst() throws Exception {
+        List<Long> films = createFilms(filmStorage, 3);
+        List<Long> users = createUsers(userStorage, 4);
+        long userId = users.get(0);
+        userStorage.addFriend(userId, users.get(1));
+        userStorage.addFriend(userId, users.get(2));
+        filmStorage.addLike(films.get(0), users.get(1));
+        filmStorage.addLike(films.get(1), users.get(2));
+        filmStorage.addLike(films.get(2), users.get(3));
+        filmStorage.addLike(films.get(2), users.get(1));
+        filmStorage.addLike(films.get(0), users.get(2));
+        filmStorage.addLike(films.get(0), users.get(2));
+
+        List<FeedEvent> feed = userService.getFeed(userId, Long.MAX_VALUE, 10);
+        assertEquals(List.of(users.get(2), users.get(1), users.get(2), users.get(1)), userIds(feed));
+        assertEquals(List.of(films.get(0), films.get(2), films.get(1), films.get(0)), filmIds(feed));
+        assertNotNull(feed.get(0).getCreatedAt());
+        List<FeedEvent> secondPage = userService.getFeed(userId, feed.get(1).getId(), 2);
+        assertEquals(filmIds(feed.subList(2, 4)), filmIds(secondPage));
+
+        filmStorage.deleteLike(films.get(2), users.get(1));
+        assertEquals(List.of(films.get(0), films.get(1), films.get(0)),
+                filmIds(userService.getFeed(userId, Long.MAX_VALUE, 10)));
+        perform(mockMvc, get("/users/" + userId + "/feed").param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].userId").value(users.get(2)))
+                .andExpect(jsonPath("$[0].filmId").value(films.get(0)))
+                .andExpect(jsonPath("$[0].createdAt").isString());
+        assertThrows(ItemDoesNotExistException.class, () -> userService.getFeed(1_000_000, Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    void getFeed_DropsLikeDeletedBeforeItsCallback() throws Exception {
+        List<Long> films = createFilms(filmStorage, 2);
+        List<Long> users = createUsers(userStorage, 2);
+        long userId = users.get(0);
+        long friendId = users.get(1);
+        userStorage.addFriend(userId, friendId);
+        filmStorage.addLike(films.get(0), friendId);
+        runBetweenCommitAndCallbacks(transactionManager,
+                () -> filmStorage.addLike(films.get(1), friendId),
+                () -> filmStorage.deleteLike(films.get(1), friendId));
+        assertEquals(List.of(films.get(0)), filmIds(userService.getFeed(userId, Long.MAX_VALUE, 10)));
+    }
+
+    @Test
+    void load_KeepsLatestEventsOfEveryUser() {
+        List<Long> films = createFilms(filmStorage, 6);
+        List<Long> users = createUsers(userStorage, 3);
+        for (int i = 0; i < films.size(); i++) {
+            filmStorage.addLike(films.get(i), users.get(1 + i % 2));
+        }
+        ActivityFeed activityFeed = new ActivityFeed(jdbcTemplate, 2);
+        activityFeed.load();
+        List<Long> expected = new ArrayList<>();
+        expected.addAll(jdbcTemplate.queryForList(GET_LAST_LIKE_IDS, Long.class, users.get(1), 2));
+        expected.addAll(jdbcTemplate.queryForList(GET_LAST_LIKE_IDS, Long.class, users.get(2), 2));
+        expected.sort((first, second) -> Long.compare(second, first));
+        List<FeedEvent> feed = activityFeed.getFeed(new long[]{users.get(1), users.get(2)}, Long.MAX_VALUE, 10);
+        assertEquals(expected, feed.stream().map(FeedEvent::getId).collect(Collectors.toList()));
+        assertEquals(List.of(films.get(5), films.get(4), films.get(3), films.get(2)), filmIds(feed));
+    }
+
+    private List<Long> userIds(List<FeedEvent> feed) {
+        return feed.stream().map(FeedEvent::getUserId).collect(Collectors.toList());
+    }
+
+    private List<Long> filmIds(List<FeedEvent> feed) {
+        return feed.stream().map(FeedEvent::getFilmId).collect(Collectors.toList());
+    }
+}
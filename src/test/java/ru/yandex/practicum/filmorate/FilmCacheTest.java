@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.metrics.QueryCountingDataSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class FilmCacheTest {
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private FilmCache filmCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void getFilm_SecondReadIsServedFromCache() {
+        Film film = filmStorage.create(film("Version 0", 1, 2));
+        long hits = filmCache.getHits();
+        filmStorage.getFilm(film.getId());
+        long statements = ((QueryCountingDataSource) dataSource).countStatements(() -> {
+            Film cached = filmStorage.getFilm(film.getId());
+            assertEquals(Set.of(1L, 2L), cached.getGenres().stream().map(Genre::getId).collect(Collectors.toSet()));
+        });
+        assertEquals(0, statements);
+        assertEquals(hits + 1, filmCache.getHits());
+        assertTrue(meterRegistry.get("cache.gets").tags("cache", "films", "result", "hit")
+                .functionCounter().count() >= 1);
+    }
+
+    @Test
+    void getFilm_ReturnsCopiesOfCachedFilm() {
+        Film film = filmStorage.create(film("Version 0", 1));
+        filmStorage.getFilm(film.getId()).setName("Changed by caller");
+        Film first = filmStorage.getFilm(film.getId());
+        assertEquals("Version 0", first.getName());
+        assertNotSame(first, filmStorage.getFilm(film.getId()));
+    }
+
+    @Test
+    void getFilm_NeverReturnsFilmOlderThanLastCompletedUpdate() throws Exception {
+        Film film = filmStorage.create(film("Version 0", 1));
+        long filmId = film.getId();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                readers.add(executor.submit(() -> {
+                    while (!done.get()) {
+                        int expected = completed.get();
+                        String name = filmStorage.getFilm(filmId).getName();
+                        int version = Integer.parseInt(name.substring("Version ".length()));
+                        assertTrue(version >= expected, name + " read after version " + expected);
+                    }
+                }));
+            }
+            Future<?> writer = executor.submit(() -> {
+                for (int version = 1; version <= 200; version++) {
+                    Film changed = film("Version " + version, 1 + version % 6);
+                    changed.setId(filmId);
+                    filmStorage.update(changed);
+                    completed.set(version);
+                    assertEquals("Version " + version, filmStorage.getFilm(filmId).getName());
+                }
+            });
+            try {
+                writer.get();
+            } finally {
+                done.set(true);
+            }
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals("Version 200", filmStorage.getFilm(filmId).getName());
+    }
+
+    @Test
+    void put_EvictsLeastRecentlyUsedFilmAndRejectsStaleLoad() {
+        FilmCache cache = new FilmCache(2, Duration.ofMinutes(1));
+        cache.put(film(1), cache.version(1));
+        cache.put(film(2), cache.version(2));
+        cache.get(1);
+        cache.put(film(3), cache.version(3));
+        assertNull(cache.get(2));
+        assertEquals(1, cache.get(1).getId());
+        assertEquals(1, cache.getEvictions());
+        long version = cache.version(4);
+        cache.invalidate(4);
+        cache.put(film(4), version);
+        assertNull(cache.get(4));
+    }
+
+    @Test
+    void get_DropsExpiredFilm() throws Exception {
+        FilmCache cache = new FilmCache(10, Duration.ofMillis(20));
+        cache.put(film(1), cache.version(1));
+        Thread.sleep(50);
+        assertNull(cache.get(1));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(0, cache.size());
+    }
+
+    private Film film(long id) {
+        Film film = film("Film " + id, 1);
+        film.setId(id);
+        return film;
+    }
+
+    private Film film(String name, long... genreIds) {
+        Film film = TestData.film(genreIds);
+        film.setName(name);
+        return film;
+    }
+}
@@ -0,0 +1,326 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.metrics.QueryCountingDataSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.ActivityFeed;
+import ru.yandex.practicum.filmorate.storage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.LikesMatrix;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.PopularFilmsRanking;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.createUsers;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.filmIds;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class FilmDbStorageTest {
+
+    private static final String GET_BEST_FILM_IDS =
+            "SELECT F.FILM_ID FROM FILMS F LEFT JOIN LIKES L ON F.FILM_ID = L.FILM_ID " +
+                    "GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC, F.FILM_ID LIMIT ?";
+
+    private static final String GET_BEST_FILM_IDS_OF_YEAR =
+            "SELECT F.FILM_ID FROM FILMS F LEFT JOIN LIKES L ON F.FILM_ID = L.FILM_ID " +
+                    "WHERE EXTRACT(YEAR FROM F.RELEASE_DATE)=? " +
+                    "GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC, F.FILM_ID LIMIT ?";
+
+    private static final String GET_BEST_FILM_IDS_OF_GENRE =
+            "SELECT F.FILM_ID FROM FILMS F LEFT JOIN LIKES L ON F.FILM_ID = L.FILM_ID " +
+                    "WHERE F.FILM_ID IN (SELECT film_id FROM film_genres WHERE genre_id=?) " +
+                    "GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC, F.FILM_ID LIMIT ?";
+
+    private static final String GET_BEST_FILM_IDS_OF_GENRE_AND_YEAR =
+            "SELECT F.FILM_ID FROM FILMS F LEFT JOIN LIKES L ON F.FILM_ID = L.FILM_ID " +
+                    "WHERE EXTRACT(YEAR FROM F.RELEASE_DATE)=? " +
+                    "AND F.FILM_ID IN (SELECT film_id FROM film_genres WHERE genre_id=?) " +
+                    "GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC, F.FILM_ID LIMIT ?";
+
+    private static final String COUNT_WRONG_LIKES_COUNTS =
+            "SELECT COUNT(*) FROM films f " +
+                    "WHERE f.likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id=f.film_id)";
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private FilmCache filmCache;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private PopularFilmsRanking popularFilmsRanking;
+
+    @Autowired
+    private MpaStorage mpaStorage;
+
+    @Autowired
+    private GenreStorage genreStorage;
+
+    @Autowired
+    private LikesMatrix likesMatrix;
+
+    @Autowired
+    private FilmSearchIndex filmSearchIndex;
+
+    @Autowired
+    private ActivityFeed activityFeed;
+
+    @Test
+    void getFilms_QueryCountDoesNotDependOnNumberOfFilms() {
+        createFilms(3);
+        long fewFilmsQueries = queries().countStatements(filmStorage::getFilms);
+        createFilms(50);
+        long manyFilmsQueries = queries().countStatements(filmStorage::getFilms);
+        assertEquals(fewFilmsQueries, manyFilmsQueries);
+    }
+
+    @Test
+    void getTheMostPopularFilms_QueryCountDoesNotDependOnCount() {
+        createFilms(50);
+        filmCache.clear();
+        long fewFilmsQueries = queries().countStatements(() -> filmStorage.getTheMostPopularFilms(3));
+        filmCache.clear();
+        long manyFilmsQueries = queries().countStatements(() -> filmStorage.getTheMostPopularFilms(50));
+        assertEquals(fewFilmsQueries, manyFilmsQueries);
+    }
+
+    @Test
+    void getFilm_LoadsFilmWithGenresInOneQuery() {
+        Film film = filmStorage.create(film(1, 2, 3, 4, 5, 6));
+        long queries = queries().countStatements(() -> filmStorage.getFilm(film.getId()));
+        Film loaded = filmStorage.getFilm(film.getId());
+        assertEquals(1, queries);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L),
+                loaded.getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+        assertEquals("Комедия", loaded.getGenres().iterator().next().getName());
+    }
+
+    @Test
+    void getFilms_PagesFollowIdOrderWithoutGaps() {
+        createFilms(25);
+        List<Long> allIds = filmIds(filmStorage.getFilms());
+        List<Long> pagedIds = new ArrayList<>();
+        List<Film> page = filmStorage.getFilms(0, 7);
+        while (!page.isEmpty()) {
+            pagedIds.addAll(filmIds(page));
+            page = filmStorage.getFilms(page.get(page.size() - 1).getId(), 7);
+        }
+        assertEquals(allIds, pagedIds);
+    }
+
+    @Test
+    void getFilms_PageLimitCountsFilmsNotGenreRows() {
+        List<Long> filmIds = filmIds(List.of(filmStorage.create(film(3, 1, 2)), filmStorage.create(film()),
+                filmStorage.create(film(6)), filmStorage.create(film(4, 5))));
+        List<Film> page = filmStorage.getFilms(filmIds.get(0) - 1, 3);
+        assertEquals(filmIds.subList(0, 3), filmIds(page));
+        assertEquals(List.of(1L, 2L, 3L),
+                page.get(0).getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+        assertTrue(page.get(1).getGenres().isEmpty());
+        assertEquals(List.of(6L), page.get(2).getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+        assertEquals(1, page.get(1).getMpa().getId());
+    }
+
+    @Test
+    void streamFilms_ReturnsAllFilmsWithGenres() {
+        createFilms(5);
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamFilms(streamed::add);
+        List<Film> films = filmStorage.getFilms();
+        assertEquals(filmIds(films), filmIds(streamed));
+        assertEquals(films.get(films.size() - 1).getGenres(), streamed.get(streamed.size() - 1).getGenres());
+    }
+
+    @Test
+    void getTheMostPopularFilms_RankingMatchesLikesTable() {
+        List<Film> films = createFilms(20);
+        List<Long> users = createUsers(userStorage, 10);
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            long filmId = films.get(random.nextInt(films.size())).getId();
+            long userId = users.get(random.nextInt(users.size()));
+            if (random.nextInt(4) == 0) {
+                filmStorage.deleteLike(filmId, userId);
+            } else {
+                filmStorage.addLike(filmId, userId);
+            }
+        }
+        List<Long> expected = jdbcTemplate.queryForList(GET_BEST_FILM_IDS, Long.class, 15);
+        assertEquals(expected, filmIds(filmStorage.getTheMostPopularFilms(15)));
+        assertEquals(filmIds(filmStorage.getTheMostPopularFilms(15)),
+                filmIds(filmStorage.getTheMostPopularFilms(Integer.MAX_VALUE)).subList(0, 15));
+    }
+
+    @Test
+    void getTheMostPopularFilms_ServesCountsAboveMaxCountFromSql() {
+        int count = popularFilmsRanking.getMaxCount() + 200;
+        TestData.createFilms(filmStorage, count);
+        assertEquals(jdbcTemplate.queryForList(GET_BEST_FILM_IDS, Long.class, count),
+                filmIds(filmService.getTheMostPopularFilms(count)));
+    }
+
+    @Test
+    void changeLikes_DeltasCommuteWhenUnlikeArrivesFirst() {
+        PopularFilmsRanking ranking = new PopularFilmsRanking(jdbcTemplate, 10);
+        ranking.addFilm(1);
+        ranking.changeLikes(1, -1);
+        ranking.changeLikes(1, 1);
+        assertEquals(0, ranking.getLikes(1));
+    }
+
+    @Test
+    void getTheMostPopularFilms_FiltersByGenreAndYear() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Film film = film(i % 6 + 1, (i + 2) % 6 + 1);
+            film.setReleaseDate(LocalDate.of(1960 + i % 3, 5, 1));
+            films.add(filmStorage.create(film));
+        }
+        List<Long> users = createUsers(userStorage, 10);
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            filmStorage.addLike(films.get(random.nextInt(films.size())).getId(),
+                    users.get(random.nextInt(users.size())));
+        }
+        for (int year = 1960; year <= 1962; year++) {
+            assertEquals(jdbcTemplate.queryForList(GET_BEST_FILM_IDS_OF_YEAR, Long.class, year, 5),
+                    filmIds(filmStorage.getTheMostPopularFilms(5, null, year)));
+            for (long genreId = 1; genreId <= 6; genreId++) {
+                assertEquals(jdbcTemplate.queryForList(GET_BEST_FILM_IDS_OF_GENRE_AND_YEAR, Long.class,
+                                year, genreId, 3),
+                        filmIds(filmStorage.getTheMostPopularFilms(3, genreId, year)));
+            }
+        }
+        List<Long> expected = jdbcTemplate.queryForList(GET_BEST_FILM_IDS_OF_GENRE, Long.class, 4, 10);
+        assertEquals(expected, filmIds(filmStorage.getTheMostPopularFilms(10, 4L, null)));
+        for (int sparseGenreFilms : new int[]{1, Integer.MAX_VALUE}) {
+            FilmDbStorage storage = new FilmDbStorage(jdbcTemplate, popularFilmsRanking, mpaStorage, genreStorage,
+                    filmCache, likesMatrix, filmSearchIndex, activityFeed, sparseGenreFilms);
+            assertEquals(expected, filmIds(storage.getTheMostPopularFilms(10, 4L, null)));
+        }
+    }
+
+    @Test
+    void addLike_LikesCountStaysExactUnderConcurrentLikes() throws Exception {
+        List<Film> films = createFilms(3);
+        List<Long> users = createUsers(userStorage, 20);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            long filmId = films.get(random.nextInt(films.size())).getId();
+            long userId = users.get(random.nextInt(users.size()));
+            boolean like = random.nextInt(3) != 0;
+            tasks.add(() -> {
+                if (like) {
+                    filmStorage.addLike(filmId, userId);
+                } else {
+                    filmStorage.deleteLike(filmId, userId);
+                }
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, jdbcTemplate.queryForObject(COUNT_WRONG_LIKES_COUNTS, Integer.class));
+        assertEquals(jdbcTemplate.queryForList(GET_BEST_FILM_IDS, Long.class, 10),
+                filmIds(filmStorage.getTheMostPopularFilms(10)));
+    }
+
+    @Test
+    void recountLikes_RepairsLikesCount() {
+        Film film = createFilms(1).get(0);
+        long userId = createUsers(userStorage, 1).get(0);
+        filmStorage.addLike(film.getId(), userId);
+        jdbcTemplate.update("UPDATE films SET likes_count=999 WHERE film_id=?", film.getId());
+        filmStorage.recountLikes();
+        assertEquals(0, jdbcTemplate.queryForObject(COUNT_WRONG_LIKES_COUNTS, Integer.class));
+        assertEquals(jdbcTemplate.queryForList(GET_BEST_FILM_IDS, Long.class, 10),
+                filmIds(filmStorage.getTheMostPopularFilms(10)));
+    }
+
+    @Test
+    void update_ChangesOnlyDifferentGenres() {
+        Film film = filmStorage.create(film(1, 2, 3));
+        Film changed = film(2, 3, 4);
+        changed.setId(film.getId());
+        changed.setMpa(Mpa.builder().id(3).build());
+        Film updated = filmStorage.update(changed);
+        assertEquals(List.of(2L, 3L, 4L), updated.getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+        assertEquals(3, updated.getMpa().getId());
+        long unchangedQueries = queries().countStatements(() -> filmStorage.update(changed));
+        Film changedAgain = film(1, 5, 6);
+        changedAgain.setId(film.getId());
+        long changedQueries = queries().countStatements(() -> filmStorage.update(changedAgain));
+        assertEquals(unchangedQueries + 2, changedQueries);
+    }
+
+    @Test
+    void createAndUpdate_QueryCountDoesNotDependOnNumberOfGenres() {
+        long oneGenreQueries = queries().countStatements(() -> filmStorage.create(film(1)));
+        long sixGenresQueries = queries().countStatements(() -> filmStorage.create(film(1, 2, 3, 4, 5, 6)));
+        assertEquals(oneGenreQueries, sixGenresQueries);
+        Film film = filmStorage.create(film(1));
+        Film withSixGenres = film(1, 2, 3, 4, 5, 6);
+        withSixGenres.setId(film.getId());
+        Film withOtherGenre = film(2);
+        withOtherGenre.setId(film.getId());
+        long sixGenresUpdateQueries = queries().countStatements(() -> filmStorage.update(withSixGenres));
+        long oneGenreUpdateQueries = queries().countStatements(() -> filmStorage.update(withOtherGenre));
+        assertEquals(sixGenresUpdateQueries, oneGenreUpdateQueries);
+    }
+
+    private QueryCountingDataSource queries() {
+        return (QueryCountingDataSource) dataSource;
+    }
+
+    private List<Film> createFilms(int count) {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            films.add(filmStorage.create(film(i % 6 + 1, (i + 1) % 6 + 1)));
+        }
+        return films;
+    }
+}
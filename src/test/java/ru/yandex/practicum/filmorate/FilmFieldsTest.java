@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptions;
+import ru.yandex.practicum.filmorate.metrics.QueryCountingDataSource;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.perform;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class FilmFieldsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private FilmCache filmCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void getFilms_ReturnsRequestedFieldsOnly() throws Exception {
+        long filmId = filmStorage.create(film(1903, 1, 2)).getId();
+        long secondId = filmStorage.create(film(1903)).getId();
+
+        assertEquals(1, statements(() -> perform(mockMvc, get("/films")
+                .param("afterId", String.valueOf(filmId - 1))
+                .param("limit", "2")
+                .param("fields", "id,name,likes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(filmId))
+                .andExpect(jsonPath("$[0].name").value("Belle Maman"))
+                .andExpect(jsonPath("$[0].likes").value(0))
+                .andExpect(jsonPath("$[1].id").value(secondId))));
+        assertEquals(2, statements(() -> perform(mockMvc, get("/films")
+                .param("afterId", String.valueOf(filmId - 1))
+                .param("limit", "2")
+                .param("fields", "genres,mpa"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].length()").value(2))
+                .andExpect(jsonPath("$[0].mpa.name").value("G"))
+                .andExpect(jsonPath("$[0].genres.length()").value(2))
+                .andExpect(jsonPath("$[1].genres.length()").value(0))));
+        assertThrows(ValidationExceptions.class, () -> filmService.getFilms(0, 1, Set.of("id", "budget")));
+        assertThrows(ValidationExceptions.class, () -> filmService.getFilms(0, 1, Set.of()));
+    }
+
+    @Test
+    void getFilms_RejectsUnknownOrEmptyFieldsWithBadRequest() throws Exception {
+        perform(mockMvc, get("/films").param("fields", "bogus"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unknown field bogus"));
+        perform(mockMvc, get("/films").param("fields", ""))
+                .andExpect(status().isBadRequest());
+        perform(mockMvc, get("/films/popular").param("fields", "id,budget"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getPopularFilmFields_KeepsRankingOrder() throws Exception {
+        int year = 1904;
+        long filmId = filmStorage.create(film(year, 1)).getId();
+        long likedId = filmStorage.create(film(year, 2)).getId();
+        User user = userStorage.create(user());
+        filmStorage.addLike(likedId, user.getId());
+
+        List<Map<String, Object>> films = filmStorage.getPopularFilmFields(10, null, year,
+                EnumSet.of(FilmField.ID, FilmField.LIKES, FilmField.GENRES));
+        assertEquals(List.of(likedId, filmId), List.of(films.get(0).get("id"), films.get(1).get("id")));
+        assertEquals(1L, films.get(0).get("likes"));
+        assertEquals(List.of("id", "likes", "genres"), List.copyOf(films.get(0).keySet()));
+        perform(mockMvc, get("/films/popular")
+                .param("year", String.valueOf(year))
+                .param("fields", "id,rate"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(likedId))
+                .andExpect(jsonPath("$[1].id").value(filmId));
+        perform(mockMvc, get("/films/popular").param("count", "1").param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].length()").value(1));
+    }
+
+    @Test
+    void getPopularFilmFields_ReadsLikesFromRankingForCachedAndUncachedFilms() {
+        int year = 1905;
+        User user = userStorage.create(user());
+        long cachedId = filmStorage.create(film(year)).getId();
+        long uncachedId = filmStorage.create(film(year)).getId();
+        filmStorage.addLike(cachedId, user.getId());
+        filmStorage.addLike(uncachedId, user.getId());
+        filmStorage.getFilm(cachedId);
+        filmCache.invalidate(uncachedId);
+        // A column that has moved on ahead of the ranking must not leak into the response
+        jdbcTemplate.update("UPDATE FILMS SET LIKES_COUNT = 5 WHERE FILM_ID IN (?, ?)", cachedId, uncachedId);
+
+        List<Map<String, Object>> films = filmStorage.getPopularFilmFields(10, null, year,
+                EnumSet.of(FilmField.ID, FilmField.LIKES));
+        assertEquals(List.of(1L, 1L), List.of(films.get(0).get("likes"), films.get(1).get("likes")));
+    }
+
+    private long statements(Request request) {
+        return ((QueryCountingDataSource) dataSource).countStatements(() -> {
+            try {
+                request.perform();
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+
+    private Film film(int year, long... genreIds) {
+        Film film = TestData.film(genreIds);
+        film.setReleaseDate(LocalDate.of(year, 7, 14));
+        return film;
+    }
+
+    private interface Request {
+        void perform() throws Exception;
+    }
+}
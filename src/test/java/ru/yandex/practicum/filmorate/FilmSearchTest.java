@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.createUsers;
+import static ru.yandex.practicum.filmorate.TestData.filmIds;
+import static ru.yandex.practicum.filmorate.TestData.perform;
+import static ru.yandex.practicum.filmorate.TestData.runBetweenCommitAndCallbacks;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class FilmSearchTest {
+
+    private static final AtomicInteger WORDS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private FilmSearchIndex filmSearchIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void searchFilms_RanksNameMatchesThenPopularity() throws Exception {
+        String word = uniqueWord();
+        long hedgehog = create("Ёжик в тумане " + word, "Мультфильм Норштейна");
+        long bear = create(word, "Ёжик и Медвежонок");
+        long fog = create("Туман", word + " про ёжика");
+        long liked = create(word.toUpperCase(), "Совсем другое кино");
+        long namesake = create("ЕЖИК", "Без совпадений");
+        List<Long> users = createUsers(userStorage, 2);
+        filmStorage.addLike(liked, users.get(0));
+        filmStorage.addLike(liked, users.get(1));
+        filmStorage.addLike(namesake, users.get(0));
+        List<Long> expected = List.of(hedgehog, bear, liked, namesake, fog);
+        assertEquals(expected, filmIds(filmStorage.searchFilms("ежик, " + word.toUpperCase(), 10)));
+        assertEquals(expected.subList(0, 2), filmIds(filmStorage.searchFilms("ЁЖИК " + word, 2)));
+        perform(mockMvc, get("/films/search").param("query", "Ёжик " + word).param("count", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(hedgehog))
+                .andExpect(jsonPath("$[2].id").value(liked));
+        perform(mockMvc, get("/films/search")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchFilms_FollowsUpdatesAndRebuild() {
+        String word = uniqueWord();
+        long filmId = create("Солярис " + word, "Фантастика");
+        assertEquals(List.of(filmId), filmIds(filmStorage.searchFilms(word + " солярис", 10)));
+        Film changed = film("Сталкер " + word, "Зона");
+        changed.setId(filmId);
+        filmStorage.update(changed);
+        assertTrue(filmIds(filmStorage.searchFilms("солярис фантастика", 100)).stream().noneMatch(id -> id == filmId));
+        assertEquals(List.of(filmId), filmIds(filmStorage.searchFilms("зона " + word, 10)));
+        filmSearchIndex.load();
+        assertEquals(List.of(filmId), filmIds(filmStorage.searchFilms("Сталкер " + word, 10)));
+        assertTrue(filmStorage.searchFilms("!!! ...", 10).isEmpty());
+    }
+
+    @Test
+    void searchFilms_KeepsLastCommittedTextWhenCallbacksOfUpdatesRace() throws Exception {
+        String first = uniqueWord();
+        String second = uniqueWord();
+        String third = uniqueWord();
+        long filmId = create(first, "Фантастика");
+        runBetweenCommitAndCallbacks(transactionManager,
+                () -> filmStorage.update(withId(film(second, "Фантастика"), filmId)),
+                () -> filmStorage.update(withId(film(third, "Фантастика"), filmId)));
+        assertEquals(List.of(), filmIds(filmStorage.searchFilms(first, 10)));
+        assertEquals(List.of(), filmIds(filmStorage.searchFilms(second, 10)));
+        assertEquals(List.of(filmId), filmIds(filmStorage.searchFilms(third, 10)));
+    }
+
+    @Test
+    void searchFilms_OrdersLargeTieByPopularity() {
+        String word = uniqueWord();
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            films.add(film("Фильм " + word, "Описание"));
+        }
+        List<Long> filmIds = filmStorage.createAll(films);
+        List<Long> users = createUsers(userStorage, 2);
+        filmStorage.addLike(filmIds.get(4000), users.get(0));
+        filmStorage.addLike(filmIds.get(4000), users.get(1));
+        filmStorage.addLike(filmIds.get(10), users.get(0));
+        assertEquals(List.of(filmIds.get(4000), filmIds.get(10), filmIds.get(0)),
+                filmIds(filmStorage.searchFilms(word, 3)));
+        assertEquals(List.of(filmIds.get(4000), filmIds.get(10), filmIds.get(0)),
+                filmIds(filmStorage.searchFilms(word + " описание", 3)));
+    }
+
+    private String uniqueWord() {
+        return "слово" + WORDS.incrementAndGet() + "x" + System.nanoTime();
+    }
+
+    private long create(String name, String description) {
+        return filmStorage.create(film(name, description)).getId();
+    }
+
+    private Film film(String name, String description) {
+        return Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(1975, 1, 1))
+                .duration(77L)
+                .mpa(Mpa.builder().id(1).build())
+                .build();
+    }
+
+    private Film withId(Film film, long id) {
+        film.setId(id);
+        return film;
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.storage.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.UserCache;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.createUsers;
+import static ru.yandex.practicum.filmorate.TestData.perform;
+import static ru.yandex.practicum.filmorate.TestData.runBetweenCommitAndCallbacks;
+import static ru.yandex.practicum.filmorate.TestData.runTogether;
+import static ru.yandex.practicum.filmorate.TestData.userIds;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class FriendshipTest {
+
+    private static final int PAIRS = 100;
+
+    private static final String GET_APPROVALS =
+            "SELECT approval FROM friends WHERE user_id=? AND friend_id=?";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private FriendshipGraph friendshipGraph;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void addFriend_OppositeRequestConfirmsBothSides() throws Exception {
+        List<Long> users = createUsers(userStorage, 3);
+        long userId = users.get(0);
+        long friendId = users.get(1);
+        long otherId = users.get(2);
+        userStorage.addFriend(userId, friendId);
+        userStorage.addFriend(otherId, friendId);
+        assertEquals(List.of(false), approvals(userId, friendId));
+        assertEquals(List.of(friendId), userIds(userStorage.getFriends(userId, false)));
+        assertEquals(List.of(), userIds(userStorage.getFriends(userId, true)));
+
+        userStorage.addFriend(friendId, userId);
+        userStorage.addFriend(friendId, otherId);
+        userStorage.addFriend(friendId, userId);
+        assertEquals(List.of(true), approvals(userId, friendId));
+        assertEquals(List.of(true), approvals(friendId, userId));
+        assertEquals(List.of(friendId), userIds(userStorage.getFriends(userId, true)));
+        assertEquals(List.of(friendId), userIds(userStorage.getCommonFriends(userId, otherId, true)));
+        UserDbStorage sqlStorage = new UserDbStorage(jdbcTemplate, new FriendshipGraph(jdbcTemplate, false, 0),
+                userCache);
+        assertEquals(List.of(friendId), userIds(sqlStorage.getCommonFriends(userId, otherId, true)));
+        perform(mockMvc, get("/users/" + friendId + "/friends").param("confirmed", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(userId));
+
+        userStorage.deleteFriend(friendId, userId);
+        assertEquals(List.of(false), approvals(userId, friendId));
+        assertEquals(List.of(), userIds(userStorage.getFriends(userId, true)));
+        assertEquals(List.of(friendId), userIds(userStorage.getFriends(userId, false)));
+        assertEquals(List.of(), userIds(userStorage.getCommonFriends(userId, otherId, true)));
+        assertArrayEquals(new long[]{otherId}, friendshipGraph.getFriends(friendId, true));
+    }
+
+    @Test
+    void addFriend_SimultaneousOppositeRequestsConfirmFriendship() throws Exception {
+        List<Long> users = createUsers(userStorage, PAIRS * 2);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < PAIRS; i++) {
+            long userId = users.get(2 * i);
+            long friendId = users.get(2 * i + 1);
+            tasks.add(() -> {
+                userStorage.addFriend(userId, friendId);
+                return null;
+            });
+            tasks.add(() -> {
+                userStorage.addFriend(friendId, userId);
+                return null;
+            });
+        }
+        runTogether(tasks, PAIRS);
+        for (int i = 0; i < PAIRS; i++) {
+            long userId = users.get(2 * i);
+            long friendId = users.get(2 * i + 1);
+            assertEquals(List.of(true), approvals(userId, friendId));
+            assertEquals(List.of(true), approvals(friendId, userId));
+            assertArrayEquals(new long[]{friendId}, friendshipGraph.getFriends(userId, true));
+            assertArrayEquals(new long[]{userId}, friendshipGraph.getFriends(friendId, true));
+        }
+    }
+
+    private List<Boolean> approvals(long userId, long friendId) {
+        return jdbcTemplate.queryForList(GET_APPROVALS, Boolean.class, userId, friendId);
+    }
+
+    @Test
+    void deleteFriend_CommittedAfterAddAppliesAfterItsCallback() throws Exception {
+        List<Long> users = createUsers(userStorage, 2);
+        long userId = users.get(1);
+        long friendId = users.get(0);
+        runBetweenCommitAndCallbacks(transactionManager,
+                () -> userStorage.addFriend(userId, friendId),
+                () -> userStorage.deleteFriend(userId, friendId));
+        assertArrayEquals(new long[0], friendshipGraph.getFriends(userId));
+    }
+}
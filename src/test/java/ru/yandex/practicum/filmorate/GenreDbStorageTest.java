@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
+import ru.yandex.practicum.filmorate.metrics.QueryCountingDataSource;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class GenreDbStorageTest {
+
+    @Autowired
+    private GenreStorage genreStorage;
+
+    @Autowired
+    private MpaStorage mpaStorage;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void lookups_AreServedWithoutQueries() {
+        long queries = ((QueryCountingDataSource) dataSource).countStatements(() -> {
+            assertTrue(genreStorage.containsGenre(1));
+            assertFalse(genreStorage.containsGenre(100));
+            assertEquals("Комедия", genreStorage.getGenre(1).getName());
+            assertTrue(mpaStorage.containsMpa(5));
+            assertEquals("NC-17", mpaStorage.getMpa(5).getName());
+            assertTrue(genreStorage.getGenres().size() >= 6);
+        });
+        assertEquals(0, queries);
+        assertThrows(ItemDoesNotExistException.class, () -> genreStorage.getGenre(100));
+    }
+
+    @Test
+    void saveGenre_RefreshesDictionary() {
+        long id = genreStorage.saveGenre(Genre.builder().name("Вестерн").build());
+        assertTrue(genreStorage.containsGenre(id));
+        assertEquals("Вестерн", genreStorage.getGenre(id).getName());
+    }
+}
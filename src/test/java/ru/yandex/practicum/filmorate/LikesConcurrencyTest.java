@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.PopularFilmsRanking;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.TestData.createUsers;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.runTogether;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class LikesConcurrencyTest {
+
+    private static final int THREADS = 200;
+
+    private static final String COUNT_LIKES = "SELECT COUNT(*) FROM likes WHERE film_id=?";
+    private static final String GET_LIKES_COUNT = "SELECT likes_count FROM films WHERE film_id=?";
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private PopularFilmsRanking popularFilmsRanking;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void addLike_RepeatedConcurrentlyCountsEveryUserOnce() throws Exception {
+        long filmId = filmStorage.create(film()).getId();
+        List<Long> users = createUsers(userStorage, THREADS);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS * 2; i++) {
+            long userId = users.get(i % THREADS);
+            tasks.add(() -> {
+                filmStorage.addLike(filmId, userId);
+                return null;
+            });
+        }
+        runTogether(tasks, THREADS);
+        assertLikes(filmId, THREADS);
+        assertEquals(filmId, filmStorage.getTheMostPopularFilms(1).get(0).getId());
+        filmStorage.addLike(filmId, users.get(0));
+        assertLikes(filmId, THREADS);
+    }
+
+    @Test
+    void addAndDeleteLike_ConcurrentTogglingKeepsCountExact() throws Exception {
+        long filmId = filmStorage.create(film()).getId();
+        List<Long> users = createUsers(userStorage, 50);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int j = 0; j < 10; j++) {
+                    long userId = users.get(random.nextInt(users.size()));
+                    if (random.nextBoolean()) {
+                        filmStorage.addLike(filmId, userId);
+                    } else {
+                        filmStorage.deleteLike(filmId, userId);
+                    }
+                }
+                return null;
+            });
+        }
+        runTogether(tasks, THREADS);
+        int likes = jdbcTemplate.queryForObject(COUNT_LIKES, Integer.class, filmId);
+        assertLikes(filmId, likes);
+        for (long userId : users) {
+            filmStorage.deleteLike(filmId, userId);
+            filmStorage.deleteLike(filmId, userId);
+        }
+        assertLikes(filmId, 0);
+    }
+
+    private void assertLikes(long filmId, int expected) {
+        assertEquals(expected, jdbcTemplate.queryForObject(COUNT_LIKES, Integer.class, filmId));
+        assertEquals(expected, jdbcTemplate.queryForObject(GET_LIKES_COUNT, Integer.class, filmId));
+        assertEquals(expected, popularFilmsRanking.getLikes(filmId));
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.perform;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private GenreDbStorage genreStorage;
+
+    @Test
+    void getFilm_RecordsStorageTimerAndRequestStatements() throws Exception {
+        Film film = filmStorage.create(Film.builder()
+                .name("Belle Maman")
+                .description("About combining an incompatible")
+                .releaseDate(LocalDate.of(1999, 7, 14))
+                .duration(102L)
+                .mpa(Mpa.builder().id(1).build())
+                .build());
+        perform(mockMvc, get("/films/" + film.getId())).andExpect(status().isOk());
+        Timer timer = meterRegistry.get("filmorate.storage")
+                .tags("storage", "FilmDbStorage", "method", "getFilm", "exception", "none")
+                .timer();
+        assertTrue(timer.count() >= 1);
+        DistributionSummary statements = meterRegistry.get("filmorate.http.statements")
+                .tags("method", "GET", "uri", "/films/{id}")
+                .summary();
+        assertEquals(1, statements.max());
+    }
+
+    @Test
+    void missingUser_RecordsExceptionTag() throws Exception {
+        perform(mockMvc, get("/users/1000000")).andExpect(status().isNotFound());
+        Timer timer = meterRegistry.get("filmorate.storage")
+                .tags("method", "getUser", "exception", "ItemDoesNotExistException")
+                .timer();
+        assertTrue(timer.count() >= 1);
+    }
+
+    @Test
+    void storageTimer_SkipsMethodsOutsideStorageInterfaces() {
+        genreStorage.load();
+        genreStorage.getGenres();
+        assertNull(meterRegistry.find("filmorate.storage").tags("method", "load").timer());
+        assertNotNull(meterRegistry.find("filmorate.storage").tags("method", "getGenres").timer());
+    }
+
+    @Test
+    void actuatorMetrics_ExposesStorageTimer() throws Exception {
+        perform(mockMvc, get("/users/1000000")).andExpect(status().isNotFound());
+        perform(mockMvc, get("/actuator/metrics/filmorate.storage").param("tag", "method:getUser"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("filmorate.storage"));
+    }
+}
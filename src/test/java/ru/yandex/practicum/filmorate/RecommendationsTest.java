@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
+import ru.yandex.practicum.filmorate.exception.ValidationExceptions;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikesMatrix;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.createFilms;
+import static ru.yandex.practicum.filmorate.TestData.createUsers;
+import static ru.yandex.practicum.filmorate.TestData.filmIds;
+import static ru.yandex.practicum.filmorate.TestData.runBetweenCommitAndCallbacks;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class RecommendationsTest {
+
+    private static final String GET_RECOMMENDED_FILM_IDS =
+            "SELECT l.film_id FROM (SELECT DISTINCT film_id, user_id FROM likes) l " +
+                    "WHERE l.user_id IN (" +
+                    "SELECT o.user_id FROM (SELECT DISTINCT film_id, user_id FROM likes) m " +
+                    "JOIN (SELECT DISTINCT film_id, user_id FROM likes) o ON m.film_id = o.film_id " +
+                    "WHERE m.user_id=? AND o.user_id<>? " +
+                    "GROUP BY o.user_id ORDER BY COUNT(*) DESC, o.user_id LIMIT ?) " +
+                    "AND l.film_id NOT IN (SELECT film_id FROM likes WHERE user_id=?) " +
+                    "GROUP BY l.film_id ORDER BY COUNT(*) DESC, l.film_id LIMIT ?";
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LikesMatrix likesMatrix;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${filmorate.recommendations.neighbours}")
+    private int neighbours;
+
+    @Test
+    void getRecommendations_MatchesLikesTable() {
+        likesMatrix.load();
+        List<Long> films = createFilms(filmStorage, 40);
+        List<Long> users = createUsers(userStorage, 80);
+        Random random = new Random(17);
+        for (int i = 0; i < 1500; i++) {
+            long filmId = films.get(random.nextInt(films.size()));
+            long userId = users.get(random.nextInt(users.size()));
+            if (random.nextInt(5) == 0) {
+                filmStorage.deleteLike(filmId, userId);
+            } else {
+                filmStorage.addLike(filmId, userId);
+            }
+        }
+        for (long userId : users.subList(0, 20)) {
+            assertEquals(jdbcTemplate.queryForList(GET_RECOMMENDED_FILM_IDS, Long.class,
+                            userId, userId, neighbours, userId, 10),
+                    filmIds(filmStorage.getRecommendations(userId, 10)));
+        }
+    }
+
+    @Test
+    void getRecommendations_SuggestsFilmsOfUserWithSameTaste() {
+        List<Long> films = createFilms(filmStorage, 4);
+        List<Long> users = createUsers(userStorage, 3);
+        filmStorage.addLike(films.get(0), users.get(0));
+        filmStorage.addLike(films.get(1), users.get(0));
+        filmStorage.addLike(films.get(0), users.get(1));
+        filmStorage.addLike(films.get(1), users.get(1));
+        filmStorage.addLike(films.get(2), users.get(1));
+        filmStorage.addLike(films.get(3), users.get(2));
+        assertEquals(List.of(films.get(2)), filmIds(userService.getRecommendations(users.get(0), 10)));
+        filmStorage.deleteLike(films.get(2), users.get(1));
+        assertTrue(userService.getRecommendations(users.get(0), 10).isEmpty());
+        assertTrue(userService.getRecommendations(users.get(2), 10).isEmpty());
+        assertThrows(ItemDoesNotExistException.class, () -> userService.getRecommendations(1_000_000, 10));
+        assertThrows(ValidationExceptions.class, () -> userService.getRecommendations(users.get(0), -5));
+    }
+
+    @Test
+    void deleteLike_CommittedAfterLikeAppliesAfterItsCallback() throws Exception {
+        List<Long> films = createFilms(filmStorage, 2);
+        List<Long> users = createUsers(userStorage, 2);
+        filmStorage.addLike(films.get(0), users.get(0));
+        filmStorage.addLike(films.get(0), users.get(1));
+        filmStorage.addLike(films.get(1), users.get(1));
+        runBetweenCommitAndCallbacks(transactionManager,
+                () -> filmStorage.addLike(films.get(1), users.get(0)),
+                () -> filmStorage.deleteLike(films.get(1), users.get(0)));
+        assertEquals(List.of(films.get(1)), filmIds(filmStorage.getRecommendations(users.get(0), 10)));
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.task.TaskDecorator;
+import ru.yandex.practicum.filmorate.controller.RequestExecutor;
+import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestExecutorTest {
+
+    @Test
+    void supply_RunsOnJdbcThreadsWhenEnabled() throws Exception {
+        RequestExecutor executor = executor(true, 2, 10);
+        try {
+            String thread = executor.supply(() -> Thread.currentThread().getName()).get();
+            assertTrue(thread.startsWith("jdbc-"), thread);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void supply_RunsOnCallerThreadWhenDisabled() throws Exception {
+        RequestExecutor executor = executor(false, 2, 10);
+        assertEquals(Thread.currentThread().getName(), executor.supply(() -> Thread.currentThread().getName()).get());
+        CompletableFuture<Object> failed = executor.supply(() -> {
+            throw new ItemDoesNotExistException("Film with id=1 not exist. ");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(ItemDoesNotExistException.class, e.getCause());
+    }
+
+    @Test
+    void supply_RejectsWhenPoolAndQueueAreFull() throws Exception {
+        RequestExecutor executor = executor(true, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.run(() -> await(release));
+            executor.run(() -> await(release));
+            assertThrows(RejectedExecutionException.class, () -> executor.run(() -> await(release)));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private RequestExecutor executor(boolean enabled, int poolSize, int queueCapacity) {
+        return new RequestExecutor(enabled, poolSize, queueCapacity,
+                new StaticListableBeanFactory().getBeanProvider(TaskDecorator.class));
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class SchemaIndexTest {
+
+    private static final String INSERT_LIKE = "INSERT INTO likes (film_id, user_id) VALUES (?,?)";
+
+    private static final String INSERT_FRIEND = "INSERT INTO friends (user_id, friend_id, approval) VALUES (?,?,false)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GenreStorage genreStorage;
+
+    @Autowired
+    private FriendshipGraph friendshipGraph;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @BeforeEach
+    void fillTablesAndAnalyze() {
+        List<Film> films = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            films.add(Film.builder()
+                    .name("Belle Maman")
+                    .description("About combining an incompatible")
+                    .releaseDate(LocalDate.of(1999, 7, 14))
+                    .duration(102L)
+                    .mpa(Mpa.builder().id(1).build())
+                    .genres(new HashSet<>(genreStorage.getGenres()))
+                    .build());
+        }
+        for (int i = 0; i < 60; i++) {
+            users.add(User.builder()
+                    .email("fet@mail.ru")
+                    .login("fet")
+                    .name("Theodor")
+                    .birthday(LocalDate.of(1987, 3, 12))
+                    .build());
+        }
+        List<Long> filmIds = filmStorage.createAll(films);
+        List<Long> userIds = userStorage.createAll(users);
+        List<Object[]> likes = new ArrayList<>();
+        List<Object[]> friends = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            for (Long filmId : filmIds) {
+                likes.add(new Object[]{filmId, userIds.get(i)});
+            }
+            for (int j = 1; j <= 20; j++) {
+                friends.add(new Object[]{userIds.get(i), userIds.get((i + j) % userIds.size())});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_LIKE, likes);
+        jdbcTemplate.batchUpdate(INSERT_FRIEND, friends);
+        filmStorage.recountLikes();
+        friendshipGraph.load();
+        // H2 does not pick up the statistics of an ANALYZE run with a statement query timeout
+        new JdbcTemplate(jdbcTemplate.getDataSource()).execute("ANALYZE");
+    }
+
+    @Test
+    void deleteLike_SeeksFilmUserConstraint() {
+        assertUsesIndex("DELETE FROM likes WHERE film_id=1 AND user_id=2", "LIKES_FILM_USER_UK");
+    }
+
+    @Test
+    void likesOfUser_SeekUserFilmIndex() {
+        assertUsesIndex("SELECT film_id FROM likes WHERE user_id=2", "LIKES_USER_FILM_IDX");
+    }
+
+    @Test
+    void deleteFriend_SeeksUserFriendKey() {
+        assertUsesIndex("DELETE FROM friends WHERE user_id=1 AND friend_id=2", "FRIENDS_USER_FRIEND_UK");
+    }
+
+    @Test
+    void friends_RejectDuplicatePair() {
+        long[] pair = jdbcTemplate.queryForObject("SELECT user_id, friend_id FROM friends LIMIT 1",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update(INSERT_FRIEND, pair[0], pair[1]));
+    }
+
+    @Test
+    void friendsOfUser_SeekFriendUserIndex() {
+        assertUsesIndex("SELECT user_id FROM friends WHERE friend_id=2", "FRIENDS_FRIEND_USER_IDX");
+    }
+
+    @Test
+    void confirmedFriendsOfUser_SeekUserApprovalFriendIndex() {
+        assertUsesIndex("SELECT friend_id FROM friends WHERE user_id=1 AND approval=true ORDER BY friend_id",
+                "FRIENDS_USER_APPROVAL_FRIEND_IDX");
+    }
+
+    @Test
+    void deleteFilmGenre_SeeksFilmGenreConstraint() {
+        assertUsesIndex("DELETE FROM film_genres WHERE film_id=1 AND genre_id=2", "FILM_GENRES_FILM_GENRE_UK");
+    }
+
+    @Test
+    void filmGenres_SeekByFilmId() {
+        assertUsesIndex("SELECT f.film_id, f.genre_id, g.genre_name FROM film_genres f " +
+                "LEFT JOIN genre g ON f.genre_id = g.genre_id WHERE f.film_id IN (1,2,3) " +
+                "ORDER BY f.film_id, g.genre_id", "FILM_ID IN(1, 2, 3)");
+    }
+
+    @Test
+    void updateFilmMpa_SeeksFilmConstraint() {
+        assertUsesIndex("UPDATE film_mpas SET mpa_id=2 WHERE film_id=1 AND mpa_id<>2", "FILM_MPAS_FILM_UK");
+    }
+
+    @Test
+    void bestFilms_ReadsLikesCountIndex() {
+        assertUsesIndex("SELECT film_id FROM films ORDER BY likes_count DESC, film_id LIMIT 10",
+                "FILMS_LIKES_COUNT_IDX");
+    }
+
+    @Test
+    void bestFilmsOfYear_ReadsYearIndexInOrder() {
+        assertUsesIndex("SELECT film_id FROM films WHERE release_year=1999 " +
+                "ORDER BY release_year, likes_count DESC, film_id LIMIT 10", "FILMS_YEAR_LIKES_COUNT_IDX");
+        assertUsesIndex("SELECT film_id FROM films WHERE release_year=1999 " +
+                "ORDER BY release_year, likes_count DESC, film_id LIMIT 10", "index sorted");
+    }
+
+    @Test
+    void bestFilmsOfGenre_ProbeFilmGenreConstraint() {
+        String sql = "SELECT f.film_id FROM films f WHERE EXISTS (SELECT 1 FROM film_genres g " +
+                "WHERE g.film_id = f.film_id AND g.genre_id=2) ORDER BY f.likes_count DESC, f.film_id LIMIT 10";
+        assertUsesIndex(sql, "FILMS_LIKES_COUNT_IDX");
+        assertUsesIndex(sql, "FILM_GENRES_FILM_GENRE_UK");
+        assertUsesIndex(sql, "index sorted");
+    }
+
+    @Test
+    void bestFilmsOfSparseGenre_ReadGenreFilmIndex() {
+        String sql = "SELECT f.film_id FROM film_genres g JOIN films f ON f.film_id = g.film_id " +
+                "WHERE g.genre_id=2 ORDER BY f.likes_count DESC, f.film_id LIMIT 10";
+        assertUsesIndex(sql, "FILM_GENRES_GENRE_FILM_IDX");
+        assertUsesIndex("SELECT COUNT(*) FROM (SELECT 1 FROM film_genres WHERE genre_id=2 LIMIT 100)",
+                ": GENRE_ID = 2");
+    }
+
+    private void assertUsesIndex(String sql, String expectedPlan) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        assertTrue(plan.contains(expectedPlan), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.storage.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.UserCache;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.TestData.createUsers;
+import static ru.yandex.practicum.filmorate.TestData.perform;
+import static ru.yandex.practicum.filmorate.TestData.userIds;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class SuggestionsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void getSuggestions_RanksFriendsOfFriendsByMutualFriends() throws Exception {
+        List<Long> users = createUsers(userStorage, 7);
+        long userId = users.get(0);
+        addFriends(userId, users.get(1), users.get(2), users.get(3));
+        addFriends(users.get(1), users.get(4), users.get(5), userId);
+        addFriends(users.get(2), users.get(6), users.get(4));
+        addFriends(users.get(3), users.get(5), users.get(4), users.get(2));
+
+        List<Long> expected = List.of(users.get(4), users.get(5), users.get(6));
+        assertEquals(expected, userIds(userStorage.getSuggestions(userId, 10)));
+        assertEquals(expected.subList(0, 2), userIds(userStorage.getSuggestions(userId, 2)));
+        UserDbStorage sqlStorage = new UserDbStorage(jdbcTemplate, new FriendshipGraph(jdbcTemplate, false, 0),
+                userCache);
+        assertEquals(expected, userIds(sqlStorage.getSuggestions(userId, 10)));
+        assertEquals(List.of(), userIds(userStorage.getSuggestions(users.get(6), 10)));
+
+        perform(mockMvc, get("/users/" + userId + "/suggestions").param("count", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(users.get(4)));
+        perform(mockMvc, get("/users/1000000/suggestions"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void suggestFriends_LeavesOutLargestFriendListsOverLimit() {
+        List<Long> users = createUsers(userStorage, 8);
+        long userId = users.get(0);
+        addFriends(userId, users.get(1), users.get(2));
+        addFriends(users.get(1), users.get(3), users.get(4), users.get(5), users.get(6));
+        addFriends(users.get(2), users.get(7), users.get(6));
+        FriendshipGraph friendshipGraph = new FriendshipGraph(jdbcTemplate, true, 3);
+        friendshipGraph.load();
+
+        assertArrayEquals(new long[]{users.get(6), users.get(7)}, friendshipGraph.suggestFriends(userId, 10));
+        FriendshipGraph unlimited = new FriendshipGraph(jdbcTemplate, true, Integer.MAX_VALUE);
+        unlimited.load();
+        assertArrayEquals(new long[]{users.get(6), users.get(3), users.get(4), users.get(5), users.get(7)},
+                unlimited.suggestFriends(userId, 10));
+    }
+
+    private void addFriends(long userId, long... friendIds) {
+        for (long friendId : friendIds) {
+            userStorage.addFriend(userId, friendId);
+        }
+    }
+}
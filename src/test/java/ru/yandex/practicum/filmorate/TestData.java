@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+final class TestData {
+
+    private TestData() {
+    }
+
+    static User user() {
+        return User.builder()
+                .email("fet@mail.ru")
+                .login("fet")
+                .name("Theodor")
+                .birthday(LocalDate.of(1987, 3, 12))
+                .build();
+    }
+
+    static Film film(long... genreIds) {
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (long genreId : genreIds) {
+            genres.add(Genre.builder().id(genreId).build());
+        }
+        return Film.builder()
+                .name("Belle Maman")
+                .description("About combining an incompatible")
+                .releaseDate(LocalDate.of(1999, 7, 14))
+                .duration(102L)
+                .mpa(Mpa.builder().id(1).build())
+                .genres(genres)
+                .build();
+    }
+
+    static List<Long> createUsers(UserStorage userStorage, int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(user());
+        }
+        return userStorage.createAll(users);
+    }
+
+    static List<Long> createFilms(FilmStorage filmStorage, int count) {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            films.add(film());
+        }
+        return filmStorage.createAll(films);
+    }
+
+    static List<Long> filmIds(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+
+    static List<Long> userIds(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    // Endpoints returning CompletableFuture need a second dispatch to produce the response
+    static ResultActions perform(MockMvc mockMvc, RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mockMvc.perform(asyncDispatch(result));
+        }
+        return actions;
+    }
+
+    // Starts all tasks at once on their own threads and rethrows the first failure
+    static void runTogether(List<Callable<Void>> tasks, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Runs the action in a transaction that commits and then waits for the other action before its after-commit
+    // callbacks run, the way a thread preempted right after commit does
+    static void runBetweenCommitAndCallbacks(PlatformTransactionManager transactionManager, Runnable action,
+                                             Runnable other) throws Exception {
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> future = executor.submit(() -> new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> {
+                        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                            @Override
+                            public void afterCommit() {
+                                committed.countDown();
+                                try {
+                                    released.await();
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            }
+                        });
+                        action.run();
+                    }));
+            if (!committed.await(10, TimeUnit.SECONDS)) {
+                future.get();
+                throw new AssertionError("Transaction did not commit");
+            }
+            try {
+                other.run();
+            } finally {
+                released.countDown();
+            }
+            future.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
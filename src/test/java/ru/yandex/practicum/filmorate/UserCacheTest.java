@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.ItemDoesNotExistException;
+import ru.yandex.practicum.filmorate.metrics.QueryCountingDataSource;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserCache;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class UserCacheTest {
+
+    private static final long MISSING_ID = 1_000_000;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void existenceChecks_AreAnsweredWithoutQueries() {
+        long userId = userStorage.create(user("fet")).getId();
+        long statements = queries().countStatements(() -> {
+            assertTrue(userStorage.containsUser(userId));
+            assertFalse(userStorage.containsUser(MISSING_ID));
+            assertFalse(userStorage.containsUser(-1));
+            assertThrows(ItemDoesNotExistException.class, () -> userStorage.getUser(MISSING_ID));
+            assertEquals("fet", userStorage.getUser(userId).getLogin());
+        });
+        assertEquals(0, statements);
+    }
+
+    @Test
+    void update_InvalidatesCachedUser() {
+        User user = userStorage.create(user("fet"));
+        userStorage.getUser(user.getId());
+        user.setName("Afanasy");
+        userStorage.update(user);
+        assertEquals("Afanasy", userStorage.getUser(user.getId()).getName());
+        userStorage.getUser(user.getId()).setName("Changed by caller");
+        assertEquals("Afanasy", userStorage.getUser(user.getId()).getName());
+    }
+
+    @Test
+    void load_PicksUpUsersInsertedBypassingStorage() {
+        jdbcTemplate.update("INSERT INTO users (login, user_name, email, birthday) VALUES ('tut','tut','tut@mail.ru',?)",
+                LocalDate.of(1990, 5, 1));
+        long userId = jdbcTemplate.queryForObject("SELECT MAX(user_id) FROM users", Long.class);
+        assertFalse(userStorage.containsUser(userId));
+        userCache.load();
+        assertTrue(userStorage.containsUser(userId));
+        assertEquals("tut", userStorage.getUser(userId).getLogin());
+    }
+
+    @Test
+    void getMemoryFootprint_GrowsWithCachedUsers() {
+        userCache.clear();
+        long idsOnly = userCache.getMemoryFootprint();
+        assertTrue(idsOnly >= userCache.getIdsBytes());
+        for (int i = 0; i < 10; i++) {
+            userStorage.create(user("user" + i));
+        }
+        assertEquals(10, userCache.size());
+        assertTrue(userCache.getMemoryFootprint() >= idsOnly + 10 * 160, userCache.getMemoryFootprint() + "");
+    }
+
+    private QueryCountingDataSource queries() {
+        return (QueryCountingDataSource) dataSource;
+    }
+
+    private User user(String login) {
+        User user = TestData.user();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        return user;
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.TestData.createUsers;
+import static ru.yandex.practicum.filmorate.TestData.userIds;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class UserDbStorageTest {
+
+    private static final String GET_COMMON_FRIEND_IDS =
+            "SELECT user_id FROM users WHERE user_id IN " +
+                    "(SELECT friend_id FROM friends WHERE user_id=? AND friend_id IN " +
+                    "(SELECT friend_id FROM friends WHERE user_id=?)) " +
+                    "ORDER BY user_id";
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void getUsers_PagesFollowIdOrderWithoutGaps() {
+        createUsers(userStorage, 25);
+        List<Long> allIds = userIds(userStorage.getUsers());
+        List<Long> pagedIds = new ArrayList<>();
+        List<User> page = userStorage.getUsers(0, 7);
+        while (!page.isEmpty()) {
+            pagedIds.addAll(userIds(page));
+            page = userStorage.getUsers(page.get(page.size() - 1).getId(), 7);
+        }
+        assertEquals(allIds, pagedIds);
+    }
+
+    @Test
+    void streamUsers_ReturnsAllUsers() {
+        createUsers(userStorage, 5);
+        List<User> streamed = new ArrayList<>();
+        userStorage.streamUsers(streamed::add);
+        assertEquals(userIds(userStorage.getUsers()), userIds(streamed));
+    }
+
+    @Test
+    void getCommonFriends_GraphMatchesFriendsTable() {
+        List<Long> users = createUsers(userStorage, 30);
+        Random random = new Random(11);
+        for (int i = 0; i < 400; i++) {
+            long userId = users.get(random.nextInt(users.size()));
+            long friendId = users.get(random.nextInt(users.size()));
+            if (userId == friendId) {
+                continue;
+            }
+            if (random.nextInt(5) == 0) {
+                userStorage.deleteFriend(userId, friendId);
+            } else {
+                userStorage.addFriend(userId, friendId);
+            }
+        }
+        for (int i = 0; i < users.size(); i++) {
+            long userId = users.get(i);
+            long otherUserId = users.get((i + 7) % users.size());
+            assertEquals(jdbcTemplate.queryForList(GET_COMMON_FRIEND_IDS, Long.class, userId, otherUserId),
+                    userIds(userStorage.getCommonFriends(userId, otherUserId, false)));
+        }
+    }
+}